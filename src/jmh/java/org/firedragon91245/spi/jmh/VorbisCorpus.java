@@ -0,0 +1,98 @@
+package org.firedragon91245.spi.jmh;
+
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Generated Ogg Vorbis corpus shared by the benchmarks.
+ * <p>
+ * Every file is a few seconds of deterministic test signal (two sines and some noise) encoded with
+ * {@code oggenc} from vorbis-tools, so {@code oggenc} has to be on the PATH the first time a file is
+ * needed. Files are kept in the directory given by the {@code vorbis.corpus} system property
+ * (defaults to {@code build/jmh-corpus}) and reused by later runs. A directory of pre-encoded files
+ * with the same names can be used instead on machines without vorbis-tools.
+ */
+public final class VorbisCorpus {
+    public static final String QUALITY_LOW = "low";
+    public static final String QUALITY_HIGH = "high";
+
+    private static final int SECONDS = 10;
+
+    private VorbisCorpus() {
+    }
+
+    /**
+     * Returns the corpus file for the given parameters, encoding it first if it does not exist yet.
+     *
+     * @param rate     sample rate in hz
+     * @param channels number of channels
+     * @param quality  {@link #QUALITY_LOW} or {@link #QUALITY_HIGH}
+     * @return the Ogg Vorbis file
+     */
+    public static synchronized File file(int rate, int channels, String quality) throws IOException {
+        File dir = new File(System.getProperty("vorbis.corpus", "build/jmh-corpus"));
+        File ogg = new File(dir, "signal-" + rate + "hz-" + channels + "ch-" + quality + ".ogg");
+        if (ogg.isFile()) return ogg;
+
+        if (!dir.isDirectory() && !dir.mkdirs()) throw new IOException("Cannot create corpus directory " + dir);
+        File raw = new File(dir, ogg.getName() + ".raw");
+        try {
+            writeSignal(raw, rate, channels);
+            encode(raw, ogg, rate, channels, QUALITY_HIGH.equals(quality) ? "8" : "0");
+        } finally {
+            //noinspection ResultOfMethodCallIgnored
+            raw.delete();
+        }
+        return ogg;
+    }
+
+    /**
+     * Writes 16 bit signed little endian test signal.
+     */
+    private static void writeSignal(File raw, int rate, int channels) throws IOException {
+        long seed = 0x5DEECE66DL;
+        try (OutputStream out = new BufferedOutputStream(new FileOutputStream(raw), 1 << 16)) {
+            for (int n = 0; n < rate * SECONDS; n++) {
+                for (int c = 0; c < channels; c++) {
+                    seed = seed * 6364136223846793005L + 1442695040888963407L;
+                    double noise = ((seed >>> 40) / (double) (1 << 24) - 0.5) * 0.1;
+                    double t = (double) n / rate;
+                    double v = 0.45 * Math.sin(2 * Math.PI * (220 + 110 * c) * t)
+                            + 0.3 * Math.sin(2 * Math.PI * (rate / 5.0) * t * t / SECONDS)
+                            + noise;
+                    int s = (int) Math.max(-32768, Math.min(32767, v * 32767));
+                    out.write(s);
+                    out.write(s >> 8);
+                }
+            }
+        }
+    }
+
+    private static void encode(File raw, File ogg, int rate, int channels, String quality) throws IOException {
+        ProcessBuilder pb = new ProcessBuilder("oggenc", "--quiet", "--raw",
+                "--raw-bits=16", "--raw-chan=" + channels, "--raw-rate=" + rate, "--raw-endianness=0",
+                "-q", quality, "-o", ogg.getAbsolutePath(), raw.getAbsolutePath());
+        pb.inheritIO();
+        Process p;
+        try {
+            p = pb.start();
+        } catch (IOException e) {
+            throw new IOException("Cannot run oggenc, is vorbis-tools installed? "
+                    + "Alternatively point -Dvorbis.corpus at a directory of pre-encoded files.", e);
+        }
+        try {
+            if (!p.waitFor(5, TimeUnit.MINUTES) || p.exitValue() != 0) {
+                p.destroyForcibly();
+                throw new IOException("oggenc failed for " + ogg);
+            }
+        } catch (InterruptedException e) {
+            p.destroyForcibly();
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while encoding " + ogg, e);
+        }
+    }
+}
@@ -0,0 +1,74 @@
+package org.firedragon91245.spi.vorbis.sampled.convert;
+
+import org.firedragon91245.spi.jmh.VorbisCorpus;
+import org.firedragon91245.spi.vorbis.sampled.file.VorbisAudioFileReader;
+import org.openjdk.jmh.annotations.*;
+
+import javax.sound.sampled.AudioFormat;
+import javax.sound.sampled.AudioInputStream;
+import java.io.File;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * End-to-end decode of a whole corpus file through {@link DecodedVorbisAudioInputStream},
+ * or {@link DirectDecodedVorbisAudioInputStream} when {@code direct} is set.
+ * The {@code bytes} and {@code samples} counters report PCM bytes and sample frames per second.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class DecodeThroughputBenchmark {
+    @Param({"8000", "22050", "44100", "48000"})
+    public int rate;
+    @Param({"1", "2"})
+    public int channels;
+    @Param({VorbisCorpus.QUALITY_LOW, VorbisCorpus.QUALITY_HIGH})
+    public String quality;
+    @Param({"false", "true"})
+    public boolean direct;
+
+    private final VorbisAudioFileReader reader = new VorbisAudioFileReader();
+    private final VorbisFormatConversionProvider provider = new VorbisFormatConversionProvider();
+    private final byte[] sink = new byte[64 * 1024];
+    private File file;
+    private AudioFormat pcmFormat;
+
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.OPERATIONS)
+    public static class Counters {
+        public long bytes;
+        public long samples;
+
+        @Setup(Level.Iteration)
+        public void reset() {
+            bytes = 0;
+            samples = 0;
+        }
+    }
+
+    @Setup
+    public void setup() throws Exception {
+        file = VorbisCorpus.file(rate, channels, quality);
+        pcmFormat = new AudioFormat(AudioFormat.Encoding.PCM_SIGNED, rate, 16, channels, 2 * channels, rate, false,
+                Map.of(VorbisFormatConversionProvider.DIRECT_PROPERTY, direct));
+    }
+
+    @Benchmark
+    public long decode(Counters counters) throws Exception {
+        long total = 0;
+        try (AudioInputStream encoded = reader.getAudioInputStream(file);
+             AudioInputStream decoded = provider.getAudioInputStream(pcmFormat, encoded)) {
+            int read;
+            while ((read = decoded.read(sink, 0, sink.length)) != -1) {
+                total += read;
+            }
+        }
+        counters.bytes += total;
+        counters.samples += total / pcmFormat.getFrameSize();
+        return total;
+    }
+}
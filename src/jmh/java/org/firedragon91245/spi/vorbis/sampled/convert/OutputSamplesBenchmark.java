@@ -0,0 +1,64 @@
+package org.firedragon91245.spi.vorbis.sampled.convert;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Float to PCM conversion of {@link DecodedVorbisAudioInputStream} ({@link PcmConverter}) in isolation,
+ * one operation is one sample frame.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class OutputSamplesBenchmark {
+    // Half of the long Vorbis block size, what synthesis_pcmout usually hands out at once
+    private static final int SAMPLES = 1024;
+
+    @Param({"1", "2"})
+    public int channels;
+
+    private float[][] pcm;
+    private int[] index;
+    private byte[] out;
+
+    @Setup
+    public void setup() {
+        Random random = new Random(42);
+        pcm = new float[channels][SAMPLES + 64];
+        index = new int[channels];
+        for (int c = 0; c < channels; c++) {
+            index[c] = 64;
+            for (int i = 0; i < pcm[c].length; i++) {
+                // Slightly out of range so the clamping is exercised too
+                pcm[c][i] = (random.nextFloat() * 2.2f) - 1.1f;
+            }
+        }
+        out = new byte[SAMPLES * channels * 4];
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(SAMPLES)
+    public byte[] pcm16() {
+        PcmConverter.toPcm16(pcm, index, channels, SAMPLES, out, 0, false);
+        return out;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(SAMPLES)
+    public byte[] pcm24() {
+        PcmConverter.toPcm24(pcm, index, channels, SAMPLES, out, 0, false);
+        return out;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(SAMPLES)
+    public byte[] float32() {
+        PcmConverter.toFloat32(pcm, index, channels, SAMPLES, out, 0, false);
+        return out;
+    }
+}
@@ -0,0 +1,61 @@
+package org.firedragon91245.spi.vorbis.sampled.file;
+
+import org.firedragon91245.spi.jmh.VorbisCorpus;
+import org.openjdk.jmh.annotations.*;
+
+import javax.sound.sampled.AudioFileFormat;
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Throughput of one shared {@link VorbisAudioFileReader} probing from many threads at once.
+ * <p>
+ * Doubles as a stress check: every probe is compared with a single threaded probe of the same file,
+ * and a mismatch fails the run.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@Threads(8)
+@State(Scope.Benchmark)
+public class ConcurrentProbeBenchmark {
+    private final VorbisAudioFileReader reader = new VorbisAudioFileReader();
+    private final List<File> files = new ArrayList<>();
+    private final List<AudioFileFormat> expected = new ArrayList<>();
+
+    @State(Scope.Thread)
+    public static class Cursor {
+        int next;
+    }
+
+    @Setup
+    public void setup() throws Exception {
+        for (int rate : new int[]{8000, 22050, 44100, 48000}) {
+            for (int channels = 1; channels <= 2; channels++) {
+                for (String quality : new String[]{VorbisCorpus.QUALITY_LOW, VorbisCorpus.QUALITY_HIGH}) {
+                    File file = VorbisCorpus.file(rate, channels, quality);
+                    files.add(file);
+                    expected.add(new VorbisAudioFileReader().getAudioFileFormat(file));
+                }
+            }
+        }
+    }
+
+    @Benchmark
+    public AudioFileFormat getAudioFileFormat(Cursor cursor) throws Exception {
+        int i = cursor.next++ % files.size();
+        AudioFileFormat format = reader.getAudioFileFormat(files.get(i));
+        AudioFileFormat reference = expected.get(i);
+        if (format.getFrameLength() != reference.getFrameLength()
+                || !format.getFormat().matches(reference.getFormat())
+                || !format.properties().equals(reference.properties())) {
+            throw new IllegalStateException("Concurrent probe of " + files.get(i) + " returned " + format
+                    + ", expected " + reference);
+        }
+        return format;
+    }
+}
@@ -0,0 +1,39 @@
+package org.firedragon91245.spi.vorbis.sampled.file;
+
+import org.firedragon91245.spi.jmh.VorbisCorpus;
+import org.openjdk.jmh.annotations.*;
+
+import javax.sound.sampled.AudioFileFormat;
+import java.io.File;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Latency of {@link VorbisAudioFileReader#getAudioFileFormat(File)} header probing.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class ProbeBenchmark {
+    @Param({"8000", "22050", "44100", "48000"})
+    public int rate;
+    @Param({"1", "2"})
+    public int channels;
+    @Param({VorbisCorpus.QUALITY_LOW, VorbisCorpus.QUALITY_HIGH})
+    public String quality;
+
+    private final VorbisAudioFileReader reader = new VorbisAudioFileReader();
+    private File file;
+
+    @Setup
+    public void setup() throws Exception {
+        file = VorbisCorpus.file(rate, channels, quality);
+    }
+
+    @Benchmark
+    public AudioFileFormat getAudioFileFormat() throws Exception {
+        return reader.getAudioFileFormat(file);
+    }
+}
@@ -1,5 +1,8 @@
 open module vorbisspi.repackaged.main {
     requires java.desktop;
+    requires java.management;
+    // flight recorder events only, emitted if jdk.jfr is in the boot layer (--add-modules jdk.jfr)
+    requires static jdk.jfr;
     requires tritonus.share;
     requires jorbis;
 
@@ -0,0 +1,45 @@
+/*
+	vorbisspi-repackaged - a modernized and modularized version of vorbisspi by javazoom
+    Copyright (C) 2024 FireDragon91245
+
+    This library is free software; you can redistribute it and/or
+    modify it under the terms of the GNU Lesser General Public
+    License as published by the Free Software Foundation; either
+    version 2.1 of the License, or (at your option) any later version.
+
+    This library is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+    Lesser General Public License for more details.
+
+    You should have received a copy of the GNU Lesser General Public
+    License along with this library; if not, write to the Free Software
+    Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301
+    USA
+ */
+
+package org.firedragon91245.spi.vorbis.sampled.convert;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Timespan;
+
+/**
+ * Flight recorder event for {@link DecodedVorbisAudioInputStream} waiting for room in its ring buffer.
+ */
+@Name("org.firedragon91245.spi.vorbis.BufferFull")
+@Label("Vorbis Buffer Full")
+@Category({"Audio", "Vorbis"})
+@Description("Decoding paused until the reader took samples out of the ring buffer")
+final class BufferFullEvent extends Event {
+    @Label("Waited")
+    @Timespan
+    long waited;
+
+    @Label("Attempts")
+    @Description("Times decoding found the buffer still full")
+    int attempts;
+}
@@ -0,0 +1,147 @@
+/*
+	vorbisspi-repackaged - a modernized and modularized version of vorbisspi by javazoom
+    Copyright (C) 2024 FireDragon91245
+
+    This library is free software; you can redistribute it and/or
+    modify it under the terms of the GNU Lesser General Public
+    License as published by the Free Software Foundation; either
+    version 2.1 of the License, or (at your option) any later version.
+
+    This library is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+    Lesser General Public License for more details.
+
+    You should have received a copy of the GNU Lesser General Public
+    License along with this library; if not, write to the Free Software
+    Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301
+    USA
+ */
+
+package org.firedragon91245.spi.vorbis.sampled.convert;
+
+import org.tritonus.share.TDebug;
+
+import javax.sound.sampled.AudioFormat;
+import java.util.Locale;
+
+/**
+ * Sizes the compressed reads and decode chunks of a decoded stream, and the ring buffer of a
+ * {@link DecodedVorbisAudioInputStream}.
+ * <p>
+ * The preset is chosen with the {@value VorbisFormatConversionProvider#BUFFERING_PROPERTY} property of the
+ * target format. Within the limits of the preset, a read covers a fixed span of audio at the bitrate observed
+ * so far, and the decode chunk grows while the consumer drains more than one chunk between two decode calls.
+ * <p>
+ * This class is not thread safe.
+ */
+final class BufferSizing {
+    private enum Preset {
+        // buffered ms (0: tritonus default), ms per read, read size limits, decode chunk frames
+        LOW_LATENCY(50, 20, 512, 4096, 512, 512),
+        ADAPTIVE(0, 100, 2048, 1 << 16, 2048, 1 << 14),
+        HIGH_THROUGHPUT(4000, 1000, 1 << 16, 1 << 20, 1 << 14, 1 << 16);
+
+        final int bufferMillis;
+        final int readMillis;
+        final int minReadSize;
+        final int maxReadSize;
+        final int decodeFrames;
+        final int maxDecodeFrames;
+
+        Preset(int bufferMillis, int readMillis, int minReadSize, int maxReadSize, int decodeFrames, int maxDecodeFrames) {
+            this.bufferMillis = bufferMillis;
+            this.readMillis = readMillis;
+            this.minReadSize = minReadSize;
+            this.maxReadSize = maxReadSize;
+            this.decodeFrames = decodeFrames;
+            this.maxDecodeFrames = maxDecodeFrames;
+        }
+    }
+
+    // the buffer size DecodedVorbisAudioInputStream had as a tritonus TAsynchronousFilteredAudioInputStream
+    private static final int DEFAULT_BUFFER_SIZE = 327670;
+
+    private final Preset preset;
+    private final float sampleRate;
+    private final int frameSize;
+    private int readSize;
+    private int decodeFrames;
+
+    BufferSizing(AudioFormat format) {
+        this.preset = preset(format);
+        this.sampleRate = format.getSampleRate();
+        this.frameSize = format.getFrameSize();
+        this.readSize = preset.minReadSize;
+        this.decodeFrames = preset.decodeFrames;
+    }
+
+    private static Preset preset(AudioFormat format) {
+        Object value = format.getProperty(VorbisFormatConversionProvider.BUFFERING_PROPERTY);
+        if (value == null) return Preset.ADAPTIVE;
+        switch (value.toString().toLowerCase(Locale.ROOT)) {
+            case VorbisFormatConversionProvider.BUFFERING_LOW_LATENCY:
+                return Preset.LOW_LATENCY;
+            case VorbisFormatConversionProvider.BUFFERING_HIGH_THROUGHPUT:
+                return Preset.HIGH_THROUGHPUT;
+            case VorbisFormatConversionProvider.BUFFERING_ADAPTIVE:
+                return Preset.ADAPTIVE;
+            default:
+                if (TDebug.TraceAudioConverter) TDebug.out("Unknown buffering " + value + ", using adaptive");
+                return Preset.ADAPTIVE;
+        }
+    }
+
+    /**
+     * Size in bytes of the ring buffer of a {@link DecodedVorbisAudioInputStream} decoding to format.
+     */
+    static int ringBufferSize(AudioFormat format) {
+        Preset preset = preset(format);
+        if (preset.bufferMillis == 0) return DEFAULT_BUFFER_SIZE;
+        long frames = (long) (format.getSampleRate() * preset.bufferMillis / 1000);
+        return (int) Math.max(4096, frames * format.getFrameSize());
+    }
+
+    /**
+     * Number of compressed bytes to read when the decoder runs dry.
+     */
+    int readSize() {
+        return readSize;
+    }
+
+    /**
+     * Current decode chunk in bytes.
+     */
+    int chunkSize() {
+        return decodeFrames * frameSize;
+    }
+
+    /**
+     * Size in bytes of the next decode chunk, given the room the consumer has left.
+     * The chunk doubles, up to the limit of the preset, while the room is twice the chunk.
+     */
+    int decodeSize(int available) {
+        if (available >= 2 * decodeFrames * frameSize && decodeFrames < preset.maxDecodeFrames) {
+            decodeFrames *= 2;
+            if (TDebug.TraceAudioConverter) TDebug.out("BufferSizing: decode chunk " + decodeFrames + " frames");
+        }
+        return Math.min(available, decodeFrames * frameSize);
+    }
+
+    /**
+     * Adapts the read size to the bitrate observed so far.
+     *
+     * @param bytesRead compressed bytes read
+     * @param frames    sample frames decoded from them
+     */
+    void update(long bytesRead, long frames) {
+        if (frames <= 0 || preset.minReadSize == preset.maxReadSize) return;
+        double target = (double) bytesRead / frames * sampleRate * preset.readMillis / 1000;
+        int size = Integer.highestOneBit((int) Math.min(target, preset.maxReadSize));
+        size = Math.max(preset.minReadSize, Math.min(preset.maxReadSize, size));
+        if (size != readSize) {
+            if (TDebug.TraceAudioConverter) TDebug.out("BufferSizing: read size " + size);
+            readSize = size;
+        }
+    }
+}
@@ -0,0 +1,124 @@
+/*
+	vorbisspi-repackaged - a modernized and modularized version of vorbisspi by javazoom
+    Copyright (C) 2024 FireDragon91245
+
+    This library is free software; you can redistribute it and/or
+    modify it under the terms of the GNU Lesser General Public
+    License as published by the Free Software Foundation; either
+    version 2.1 of the License, or (at your option) any later version.
+
+    This library is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+    Lesser General Public License for more details.
+
+    You should have received a copy of the GNU Lesser General Public
+    License along with this library; if not, write to the Free Software
+    Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301
+    USA
+ */
+
+package org.firedragon91245.spi.vorbis.sampled.convert;
+
+import org.firedragon91245.spi.vorbis.sampled.file.VorbisAudioFileReader;
+
+import javax.sound.sampled.AudioFormat;
+import javax.sound.sampled.AudioInputStream;
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Decodes many files to {@link DecodedClip}s in parallel, one file per thread at a time.
+ * <p>
+ * Each clip is decoded into a buffer allocated once with the exact length of the file. A clip can be loaded
+ * into a {@link javax.sound.sampled.Clip} with <code>clip.open(decodedClip.getAudioInputStream())</code>.
+ * <pre>{@code
+ * try (ClipPreloader preloader = new ClipPreloader()) {
+ *     List<DecodedClip> clips = preloader.loadAll(files, null).join();
+ * }
+ * }</pre>
+ */
+public final class ClipPreloader implements AutoCloseable {
+    private final VorbisAudioFileReader reader = new VorbisAudioFileReader();
+    private final ExecutorService executor;
+    private final boolean direct;
+
+    /**
+     * Constructor, decoding on as many threads as there are processors into heap buffers.
+     */
+    public ClipPreloader() {
+        this(Runtime.getRuntime().availableProcessors(), false);
+    }
+
+    /**
+     * Constructor.
+     *
+     * @param threads number of files decoded at the same time
+     * @param direct  true to decode into off-heap memory
+     */
+    public ClipPreloader(int threads, boolean direct) {
+        if (threads < 1) throw new IllegalArgumentException("threads < 1");
+        AtomicInteger count = new AtomicInteger();
+        this.executor = Executors.newFixedThreadPool(threads, r -> {
+            Thread thread = new Thread(r, "vorbis-preloader-" + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.direct = direct;
+    }
+
+    /**
+     * Decodes a file in the background.
+     *
+     * @param targetFormat PCM format with the sample rate and channels of the file,
+     *                     or null for signed 16 bit little endian
+     * @return the clip, completed exceptionally with the IOException or UnsupportedAudioFileException on failure
+     */
+    public CompletableFuture<DecodedClip> load(File file, AudioFormat targetFormat) {
+        return CompletableFuture.supplyAsync(() -> {
+            try (AudioInputStream encoded = reader.getAudioInputStream(file)) {
+                AudioFormat source = encoded.getFormat();
+                AudioFormat target = targetFormat != null ? targetFormat
+                        : new AudioFormat(source.getSampleRate(), 16, source.getChannels(), true, false);
+                return DecodedClip.decode(encoded, target, direct);
+            } catch (Exception e) {
+                throw new CompletionException(e);
+            }
+        }, executor);
+    }
+
+    /**
+     * Decodes all files in the background.
+     *
+     * @param targetFormat see {@link #load(File, AudioFormat)}
+     * @return the clips in the order of the files, completed once all are decoded; completed exceptionally
+     * if any file failed
+     */
+    public CompletableFuture<List<DecodedClip>> loadAll(Collection<File> files, AudioFormat targetFormat) {
+        List<CompletableFuture<DecodedClip>> futures = new ArrayList<>(files.size());
+        for (File file : files) {
+            futures.add(load(file, targetFormat));
+        }
+        return CompletableFuture.allOf(futures.toArray(new CompletableFuture<?>[0])).thenApply(done -> {
+            List<DecodedClip> clips = new ArrayList<>(futures.size());
+            for (CompletableFuture<DecodedClip> future : futures) {
+                clips.add(future.join());
+            }
+            return clips;
+        });
+    }
+
+    /**
+     * Stops the decoding threads once the files already submitted are decoded.
+     */
+    public void close() {
+        executor.shutdown();
+    }
+}
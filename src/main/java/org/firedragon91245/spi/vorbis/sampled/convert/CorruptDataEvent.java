@@ -0,0 +1,57 @@
+/*
+	vorbisspi-repackaged - a modernized and modularized version of vorbisspi by javazoom
+    Copyright (C) 2024 FireDragon91245
+
+    This library is free software; you can redistribute it and/or
+    modify it under the terms of the GNU Lesser General Public
+    License as published by the Free Software Foundation; either
+    version 2.1 of the License, or (at your option) any later version.
+
+    This library is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+    Lesser General Public License for more details.
+
+    You should have received a copy of the GNU Lesser General Public
+    License along with this library; if not, write to the Free Software
+    Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301
+    USA
+ */
+
+package org.firedragon91245.spi.vorbis.sampled.convert;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * Flight recorder event for corrupt or missing data the decoder skipped.
+ */
+@Name("org.firedragon91245.spi.vorbis.CorruptData")
+@Label("Vorbis Corrupt Data")
+@Category({"Audio", "Vorbis"})
+@Description("The decoder lost sync on corrupt or missing data and resynchronized")
+final class CorruptDataEvent extends Event {
+    @Label("Kind")
+    @Description("page if bytes were skipped to find the next page, packet if a packet was lost")
+    String kind;
+
+    @Label("Position")
+    @Description("Compressed bytes read when the data was skipped")
+    long position;
+
+    @Label("Serial Number")
+    int serialNumber;
+
+    static void emit(String kind, long position, int serialNumber) {
+        CorruptDataEvent event = new CorruptDataEvent();
+        if (event.shouldCommit()) {
+            event.kind = kind;
+            event.position = position;
+            event.serialNumber = serialNumber;
+            event.commit();
+        }
+    }
+}
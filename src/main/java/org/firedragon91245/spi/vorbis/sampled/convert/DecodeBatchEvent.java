@@ -0,0 +1,54 @@
+/*
+	vorbisspi-repackaged - a modernized and modularized version of vorbisspi by javazoom
+    Copyright (C) 2024 FireDragon91245
+
+    This library is free software; you can redistribute it and/or
+    modify it under the terms of the GNU Lesser General Public
+    License as published by the Free Software Foundation; either
+    version 2.1 of the License, or (at your option) any later version.
+
+    This library is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+    Lesser General Public License for more details.
+
+    You should have received a copy of the GNU Lesser General Public
+    License along with this library; if not, write to the Free Software
+    Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301
+    USA
+ */
+
+package org.firedragon91245.spi.vorbis.sampled.convert;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * Flight recorder event for one {@link VorbisDecoder#read} call.
+ */
+@Name("org.firedragon91245.spi.vorbis.DecodeBatch")
+@Label("Vorbis Decode Batch")
+@Category({"Audio", "Vorbis"})
+@Description("Decoding samples into the buffer of a reader")
+final class DecodeBatchEvent extends Event {
+    @Label("Requested Frames")
+    int requestedFrames;
+
+    @Label("Frames")
+    @Description("Sample frames decoded, -1 at the end of the stream")
+    int frames;
+
+    @Label("Packets")
+    long packets;
+
+    @Label("Compressed Bytes")
+    @DataAmount
+    long bytesRead;
+
+    @Label("Serial Number")
+    int serialNumber;
+}
@@ -0,0 +1,214 @@
+/*
+	vorbisspi-repackaged - a modernized and modularized version of vorbisspi by javazoom
+    Copyright (C) 2024 FireDragon91245
+
+    This library is free software; you can redistribute it and/or
+    modify it under the terms of the GNU Lesser General Public
+    License as published by the Free Software Foundation; either
+    version 2.1 of the License, or (at your option) any later version.
+
+    This library is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+    Lesser General Public License for more details.
+
+    You should have received a copy of the GNU Lesser General Public
+    License along with this library; if not, write to the Free Software
+    Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301
+    USA
+ */
+
+package org.firedragon91245.spi.vorbis.sampled.convert;
+
+import org.tritonus.share.TDebug;
+
+import javax.management.JMException;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Counters of one decoder, updated by the decoding thread and read from any thread.
+ * Every update is added to the JVM wide {@link DecodeStatisticsMXBean} as well, and closing
+ * records a {@link StreamCloseEvent} with the totals. The events are emitted only if jdk.jfr is in the
+ * boot layer, see {@link #EVENTS}.
+ */
+final class DecodeMetrics {
+    /**
+     * Whether flight recorder events can be emitted. jdk.jfr is <code>requires static</code>, which does not
+     * resolve it: it is in the boot layer on the class path, and on the module path of a full JDK, where
+     * service binding resolves it through jdk.management.jfr. A jlink image or <code>--limit-modules</code>
+     * needs <code>--add-modules jdk.jfr</code>. This is fixed at startup; a recording started later with
+     * jcmd or JMC gets no Vorbis events if the module was not resolved.
+     */
+    static final boolean EVENTS = ModuleLayer.boot().findModule("jdk.jfr").isPresent();
+    private static final Statistics ALL = Statistics.register();
+    private final AtomicBoolean closed = new AtomicBoolean();
+    private volatile long bytesRead = 0;
+    private volatile long pages = 0;
+    private volatile long packets = 0;
+    private volatile long failedPackets = 0;
+    private volatile long samples = 0;
+    private volatile long synthesisNanos = 0;
+    private volatile long conversionNanos = 0;
+    private volatile long ioNanos = 0;
+    private volatile long bufferFullStalls = 0;
+
+    DecodeMetrics() {
+        ALL.openDecoders.increment();
+    }
+
+    void read(int bytes, long nanos) {
+        bytesRead += bytes;
+        ioNanos += nanos;
+        ALL.bytesRead.add(bytes);
+        ALL.ioNanos.add(nanos);
+    }
+
+    void page() {
+        pages++;
+        ALL.pages.increment();
+    }
+
+    void headerPacket() {
+        packets++;
+        ALL.packets.increment();
+    }
+
+    void audioPacket(boolean failed, long nanos) {
+        packets++;
+        synthesisNanos += nanos;
+        ALL.packets.increment();
+        ALL.synthesisNanos.add(nanos);
+        if (failed) {
+            failedPackets++;
+            ALL.failedPackets.increment();
+        }
+    }
+
+    void converted(int frames, long nanos) {
+        samples += frames;
+        conversionNanos += nanos;
+        ALL.samples.add(frames);
+        ALL.conversionNanos.add(nanos);
+    }
+
+    void bufferFull() {
+        bufferFullStalls++;
+        ALL.bufferFullStalls.increment();
+    }
+
+    /**
+     * Takes the decoder out of the open decoder count, once.
+     */
+    void close() {
+        if (!closed.compareAndSet(false, true)) return;
+        ALL.openDecoders.decrement();
+        if (!EVENTS) return;
+        StreamCloseEvent event = new StreamCloseEvent();
+        if (event.shouldCommit()) {
+            event.bytesRead = bytesRead;
+            event.packets = packets;
+            event.failedPackets = failedPackets;
+            event.frames = samples;
+            event.synthesisTime = synthesisNanos;
+            event.conversionTime = conversionNanos;
+            event.ioTime = ioNanos;
+            event.bufferFullStalls = bufferFullStalls;
+            event.commit();
+        }
+    }
+
+    long bytesRead() {
+        return bytesRead;
+    }
+
+    long packets() {
+        return packets;
+    }
+
+    long samples() {
+        return samples;
+    }
+
+    /**
+     * Puts the counters into a properties map, see {@link DecodedVorbisAudioInputStream#properties()}.
+     */
+    void putProperties(Map<String, Object> properties) {
+        properties.put("ogg.decode.bytes", bytesRead);
+        properties.put("ogg.decode.pages", pages);
+        properties.put("ogg.decode.packets", packets);
+        properties.put("ogg.decode.packets.failed", failedPackets);
+        properties.put("ogg.decode.samples", samples);
+        properties.put("ogg.decode.time.synthesis", synthesisNanos);
+        properties.put("ogg.decode.time.conversion", conversionNanos);
+        properties.put("ogg.decode.time.io", ioNanos);
+        properties.put("ogg.decode.stalls", bufferFullStalls);
+    }
+
+    private static final class Statistics implements DecodeStatisticsMXBean {
+        private final LongAdder openDecoders = new LongAdder();
+        private final LongAdder bytesRead = new LongAdder();
+        private final LongAdder pages = new LongAdder();
+        private final LongAdder packets = new LongAdder();
+        private final LongAdder failedPackets = new LongAdder();
+        private final LongAdder samples = new LongAdder();
+        private final LongAdder synthesisNanos = new LongAdder();
+        private final LongAdder conversionNanos = new LongAdder();
+        private final LongAdder ioNanos = new LongAdder();
+        private final LongAdder bufferFullStalls = new LongAdder();
+
+        static Statistics register() {
+            Statistics statistics = new Statistics();
+            try {
+                ManagementFactory.getPlatformMBeanServer().registerMBean(statistics, new ObjectName(DecodeStatisticsMXBean.OBJECT_NAME));
+            } catch (JMException | SecurityException e) {
+                // e.g. already registered by another class loader, the counters still work
+                if (TDebug.TraceAudioConverter) TDebug.out("DecodeStatistics not registered: " + e);
+            }
+            return statistics;
+        }
+
+        public long getOpenDecoders() {
+            return openDecoders.sum();
+        }
+
+        public long getBytesRead() {
+            return bytesRead.sum();
+        }
+
+        public long getPages() {
+            return pages.sum();
+        }
+
+        public long getPackets() {
+            return packets.sum();
+        }
+
+        public long getFailedPackets() {
+            return failedPackets.sum();
+        }
+
+        public long getSamples() {
+            return samples.sum();
+        }
+
+        public long getSynthesisNanos() {
+            return synthesisNanos.sum();
+        }
+
+        public long getConversionNanos() {
+            return conversionNanos.sum();
+        }
+
+        public long getIoNanos() {
+            return ioNanos.sum();
+        }
+
+        public long getBufferFullStalls() {
+            return bufferFullStalls.sum();
+        }
+    }
+}
@@ -0,0 +1,81 @@
+/*
+	vorbisspi-repackaged - a modernized and modularized version of vorbisspi by javazoom
+    Copyright (C) 2024 FireDragon91245
+
+    This library is free software; you can redistribute it and/or
+    modify it under the terms of the GNU Lesser General Public
+    License as published by the Free Software Foundation; either
+    version 2.1 of the License, or (at your option) any later version.
+
+    This library is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+    Lesser General Public License for more details.
+
+    You should have received a copy of the GNU Lesser General Public
+    License along with this library; if not, write to the Free Software
+    Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301
+    USA
+ */
+
+package org.firedragon91245.spi.vorbis.sampled.convert;
+
+/**
+ * Decoding counters summed over all Vorbis decoders of the JVM, registered with the platform MBean server
+ * under {@value #OBJECT_NAME} once the first decoder is created.
+ * <p>
+ * The counters of a single stream are available from its <code>properties()</code>.
+ */
+public interface DecodeStatisticsMXBean {
+    String OBJECT_NAME = "org.firedragon91245.spi.vorbis:type=DecodeStatistics";
+
+    /**
+     * Number of decoders not closed yet.
+     */
+    long getOpenDecoders();
+
+    /**
+     * Compressed bytes read.
+     */
+    long getBytesRead();
+
+    /**
+     * Ogg pages taken from the input.
+     */
+    long getPages();
+
+    /**
+     * Header and audio packets processed.
+     */
+    long getPackets();
+
+    /**
+     * Audio packets the Vorbis synthesis rejected.
+     */
+    long getFailedPackets();
+
+    /**
+     * Sample frames emitted.
+     */
+    long getSamples();
+
+    /**
+     * Nanoseconds spent in the Vorbis synthesis.
+     */
+    long getSynthesisNanos();
+
+    /**
+     * Nanoseconds spent converting samples to the output format.
+     */
+    long getConversionNanos();
+
+    /**
+     * Nanoseconds spent reading compressed data.
+     */
+    long getIoNanos();
+
+    /**
+     * Times a decoder stopped because its consumer had not taken the decoded samples yet.
+     */
+    long getBufferFullStalls();
+}
@@ -0,0 +1,209 @@
+/*
+	vorbisspi-repackaged - a modernized and modularized version of vorbisspi by javazoom
+    Copyright (C) 2024 FireDragon91245
+
+    This library is free software; you can redistribute it and/or
+    modify it under the terms of the GNU Lesser General Public
+    License as published by the Free Software Foundation; either
+    version 2.1 of the License, or (at your option) any later version.
+
+    This library is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+    Lesser General Public License for more details.
+
+    You should have received a copy of the GNU Lesser General Public
+    License along with this library; if not, write to the Free Software
+    Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301
+    USA
+ */
+
+package org.firedragon91245.spi.vorbis.sampled.convert;
+
+import org.firedragon91245.spi.vorbis.sampled.file.VorbisAudioFileReader;
+import org.tritonus.share.TDebug;
+
+import javax.sound.sampled.AudioFormat;
+import javax.sound.sampled.AudioInputStream;
+import javax.sound.sampled.UnsupportedAudioFileException;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+
+/**
+ * A whole Vorbis stream decoded to PCM, in a heap or a direct (off-heap) buffer.
+ * <p>
+ * The PCM is never modified after decoding. Any number of streams can be opened over it with
+ * {@link #getAudioInputStream()}, each only a small view object sharing the buffer.
+ */
+public final class DecodedClip {
+    private static final int READ_SIZE = 4096;
+    private static final int CHUNK_FRAMES = 4096;
+    private final AudioFormat format;
+    private final int frameSize;
+    private final ByteBuffer pcm;
+
+    private DecodedClip(AudioFormat format, int frameSize, ByteBuffer pcm) {
+        this.format = format;
+        this.frameSize = frameSize;
+        this.pcm = pcm.asReadOnlyBuffer();
+    }
+
+    /**
+     * Decodes a whole file.
+     *
+     * @param targetFormat PCM format, with the sample rate and channels of the file
+     * @param direct       true to decode into off-heap memory
+     */
+    public static DecodedClip decode(File file, AudioFormat targetFormat, boolean direct) throws UnsupportedAudioFileException, IOException {
+        try (AudioInputStream encoded = new VorbisAudioFileReader().getAudioInputStream(file)) {
+            return decode(encoded, targetFormat, direct);
+        }
+    }
+
+    /**
+     * Decodes the rest of an encoded stream, as returned by {@link VorbisAudioFileReader}.
+     * The buffer is allocated once with the exact size when the length of the stream is known.
+     *
+     * @param targetFormat PCM format, with the sample rate and channels of the stream
+     * @param direct       true to decode into off-heap memory
+     */
+    public static DecodedClip decode(AudioInputStream encoded, AudioFormat targetFormat, boolean direct) throws IOException {
+        return decode(encoded, targetFormat, direct, Long.MAX_VALUE);
+    }
+
+    /**
+     * @param maxBytes largest clip to decode
+     * @return the clip, or null if it is larger than maxBytes
+     */
+    static DecodedClip decode(AudioInputStream encoded, AudioFormat targetFormat, boolean direct, long maxBytes) throws IOException {
+        AudioFormat source = encoded.getFormat();
+        if (source.getSampleRate() != targetFormat.getSampleRate() || source.getChannels() != targetFormat.getChannels()) {
+            throw new IllegalArgumentException("conversion not supported");
+        }
+        VorbisDecoder decoder = new VorbisDecoder(targetFormat);
+        try {
+            int frameSize = decoder.frameSize();
+            long frames = VorbisDecoder.frameLength(encoded);
+            long expected = frames >= 0 ? frames * frameSize : (long) CHUNK_FRAMES * frameSize;
+            if (expected > maxBytes || expected > Integer.MAX_VALUE) return null;
+            ByteBuffer pcm = allocate((int) expected, direct);
+            byte[] chunk = direct ? new byte[CHUNK_FRAMES * frameSize] : null;
+            while (true) {
+                int n;
+                if (!pcm.hasRemaining()) {
+                    // either the end, or longer than announced or the length is unknown
+                    if (chunk == null) chunk = new byte[CHUNK_FRAMES * frameSize];
+                    n = decoder.read(encoded, READ_SIZE, chunk, 0, chunk.length);
+                    if (n > 0) {
+                        long capacity = Math.max(2L * pcm.capacity(), (long) pcm.capacity() + n);
+                        if (capacity > maxBytes || capacity > Integer.MAX_VALUE - 8) return null;
+                        pcm = allocate((int) capacity, direct).put(pcm.flip()).put(chunk, 0, n);
+                    }
+                } else if (direct) {
+                    n = decoder.read(encoded, READ_SIZE, chunk, 0, Math.min(chunk.length, pcm.remaining()));
+                    if (n > 0) pcm.put(chunk, 0, n);
+                } else {
+                    n = decoder.read(encoded, READ_SIZE, pcm.array(), pcm.arrayOffset() + pcm.position(), pcm.remaining());
+                    if (n > 0) pcm.position(pcm.position() + n);
+                }
+                if (n < 0) break;
+            }
+            pcm.flip();
+            if (TDebug.TraceAudioConverter) TDebug.out("DecodedClip: " + pcm.limit() + " bytes, expected " + expected);
+            return new DecodedClip(targetFormat, frameSize, pcm);
+        } finally {
+            decoder.clear();
+        }
+    }
+
+    private static ByteBuffer allocate(int capacity, boolean direct) {
+        return direct ? ByteBuffer.allocateDirect(capacity) : ByteBuffer.allocate(capacity);
+    }
+
+    public AudioFormat getFormat() {
+        return format;
+    }
+
+    /**
+     * Length in sample frames.
+     */
+    public long getFrameLength() {
+        return pcm.limit() / frameSize;
+    }
+
+    /**
+     * Length in bytes.
+     */
+    public int getByteLength() {
+        return pcm.limit();
+    }
+
+    /**
+     * @return true if the PCM is held off-heap
+     */
+    public boolean isDirect() {
+        return pcm.isDirect();
+    }
+
+    /**
+     * Read-only view of the PCM.
+     */
+    public ByteBuffer pcm() {
+        return pcm.duplicate();
+    }
+
+    /**
+     * Opens a stream over the PCM, starting at the first frame.
+     */
+    public AudioInputStream getAudioInputStream() {
+        return new AudioInputStream(new BufferInputStream(pcm.duplicate()), format, getFrameLength());
+    }
+
+    /**
+     * InputStream reading a ByteBuffer.
+     */
+    private static final class BufferInputStream extends InputStream {
+        private final ByteBuffer buffer;
+        private int mark = 0;
+
+        BufferInputStream(ByteBuffer buffer) {
+            this.buffer = buffer;
+        }
+
+        public int read() {
+            return buffer.hasRemaining() ? buffer.get() & 0xff : -1;
+        }
+
+        public int read(byte[] b, int off, int len) {
+            if (len == 0) return 0;
+            if (!buffer.hasRemaining()) return -1;
+            int n = Math.min(len, buffer.remaining());
+            buffer.get(b, off, n);
+            return n;
+        }
+
+        public long skip(long n) {
+            int skip = (int) Math.max(0, Math.min(n, buffer.remaining()));
+            buffer.position(buffer.position() + skip);
+            return skip;
+        }
+
+        public int available() {
+            return buffer.remaining();
+        }
+
+        public boolean markSupported() {
+            return true;
+        }
+
+        public void mark(int readlimit) {
+            mark = buffer.position();
+        }
+
+        public void reset() {
+            buffer.position(mark);
+        }
+    }
+}
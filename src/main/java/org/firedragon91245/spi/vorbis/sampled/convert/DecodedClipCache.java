@@ -0,0 +1,216 @@
+/*
+	vorbisspi-repackaged - a modernized and modularized version of vorbisspi by javazoom
+    Copyright (C) 2024 FireDragon91245
+
+    This library is free software; you can redistribute it and/or
+    modify it under the terms of the GNU Lesser General Public
+    License as published by the Free Software Foundation; either
+    version 2.1 of the License, or (at your option) any later version.
+
+    This library is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+    Lesser General Public License for more details.
+
+    You should have received a copy of the GNU Lesser General Public
+    License along with this library; if not, write to the Free Software
+    Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301
+    USA
+ */
+
+package org.firedragon91245.spi.vorbis.sampled.convert;
+
+import org.firedragon91245.spi.vorbis.sampled.file.VorbisAudioFileReader;
+import org.tritonus.share.TDebug;
+
+import javax.sound.sampled.AudioFormat;
+import javax.sound.sampled.AudioInputStream;
+import javax.sound.sampled.UnsupportedAudioFileException;
+import java.io.File;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * LRU cache of short clips decoded to off-heap PCM, for sounds played over and over.
+ * <p>
+ * Clips up to a maximum size are decoded once into direct memory; all cached clips together stay
+ * within a byte budget, the least recently played are evicted first. A cached play decodes nothing,
+ * it only opens a view stream over the shared PCM. Longer files are streamed with a
+ * {@link DecodedVorbisAudioInputStream} as usual.
+ * <p>
+ * Files are keyed by path, length, modification time and the target format. Threads missing on the same
+ * key at the same time share one decode.
+ * <p>
+ * The budget counts the clips in the cache, not the direct memory in use. Eviction only drops the cache's
+ * reference: the memory of an evicted clip is freed when the garbage collector collects its buffer, which
+ * only happens once the streams and {@link DecodedClip} references handed out for it are unreachable. Code
+ * that keeps evicted clips or their streams alive, or a heap that is rarely collected, can hold more direct
+ * memory than the budget; <code>-XX:MaxDirectMemorySize</code> bounds the total.
+ */
+public final class DecodedClipCache {
+    private final long budget;
+    private final long maxClipBytes;
+    private final VorbisAudioFileReader reader = new VorbisAudioFileReader();
+    private final LinkedHashMap<Key, DecodedClip> clips = new LinkedHashMap<>(64, 0.75f, true);
+    // decodes in progress, guarded by clips
+    private final Map<Key, CompletableFuture<DecodedClip>> loading = new HashMap<>();
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+    private long bytes = 0;
+
+    /**
+     * Constructor.
+     *
+     * @param budget       off-heap bytes all cached clips may take together
+     * @param maxClipBytes largest decoded clip that is cached
+     */
+    public DecodedClipCache(long budget, long maxClipBytes) {
+        if (budget <= 0 || maxClipBytes <= 0) throw new IllegalArgumentException("budget and maxClipBytes must be positive");
+        this.budget = budget;
+        this.maxClipBytes = Math.min(maxClipBytes, budget);
+    }
+
+    /**
+     * Hit, miss and eviction counters and current size.
+     *
+     * @param hits      plays served from the cache, or from a decode another thread had started
+     * @param misses    plays that decoded the file
+     * @param evictions clips removed to stay within the budget
+     * @param clips     number of cached clips
+     * @param bytes     off-heap bytes held by the cached clips
+     */
+    public record Statistics(long hits, long misses, long evictions, int clips, long bytes) {
+    }
+
+    public Statistics statistics() {
+        synchronized (clips) {
+            return new Statistics(hits.sum(), misses.sum(), evictions.sum(), clips.size(), bytes);
+        }
+    }
+
+    /**
+     * Removes all clips. Streams already opened over them keep working, see the class comment for when
+     * their memory is freed.
+     */
+    public void clear() {
+        synchronized (clips) {
+            clips.clear();
+            bytes = 0;
+        }
+    }
+
+    /**
+     * Decoded stream of the file, from the cache if possible.
+     *
+     * @param targetFormat PCM format, with the sample rate and channels of the file
+     */
+    public AudioInputStream getAudioInputStream(File file, AudioFormat targetFormat) throws UnsupportedAudioFileException, IOException {
+        DecodedClip clip = getClip(file, targetFormat);
+        if (clip != null) {
+            return clip.getAudioInputStream();
+        }
+        AudioInputStream encoded = reader.getAudioInputStream(file);
+        return new DecodedVorbisAudioInputStream(targetFormat, encoded);
+    }
+
+    /**
+     * The decoded clip of the file, from the cache or decoded and cached now.
+     *
+     * @param targetFormat PCM format, with the sample rate and channels of the file
+     * @return the clip, or null if it is larger than the maximum clip size
+     */
+    public DecodedClip getClip(File file, AudioFormat targetFormat) throws UnsupportedAudioFileException, IOException {
+        Path path = file.toPath().toAbsolutePath().normalize();
+        Key key = new Key(path, Files.size(path), Files.getLastModifiedTime(path).toMillis(),
+                targetFormat.getEncoding().toString(), targetFormat.getSampleRate(), targetFormat.getSampleSizeInBits(),
+                targetFormat.getChannels(), targetFormat.isBigEndian());
+        CompletableFuture<DecodedClip> pending;
+        CompletableFuture<DecodedClip> decoding = null;
+        synchronized (clips) {
+            DecodedClip clip = clips.get(key);
+            if (clip != null) {
+                hits.increment();
+                return clip;
+            }
+            pending = loading.get(key);
+            if (pending == null) {
+                decoding = new CompletableFuture<>();
+                loading.put(key, decoding);
+            }
+        }
+        if (decoding == null) {
+            hits.increment();
+            return await(pending);
+        }
+        misses.increment();
+        DecodedClip clip = null;
+        try {
+            try (AudioInputStream encoded = reader.getAudioInputStream(file)) {
+                clip = DecodedClip.decode(encoded, targetFormat, true, maxClipBytes);
+            }
+            if (clip == null && TDebug.TraceAudioConverter) {
+                TDebug.out("DecodedClipCache: " + file + " is too large to cache");
+            }
+        } catch (UnsupportedAudioFileException | IOException | RuntimeException e) {
+            synchronized (clips) {
+                loading.remove(key);
+            }
+            decoding.completeExceptionally(e);
+            throw e;
+        }
+        synchronized (clips) {
+            loading.remove(key);
+            if (clip != null) put(key, clip);
+        }
+        decoding.complete(clip);
+        return clip;
+    }
+
+    /**
+     * Result of a decode started by another thread, with its exception rethrown.
+     */
+    private static DecodedClip await(CompletableFuture<DecodedClip> pending) throws UnsupportedAudioFileException, IOException {
+        try {
+            return pending.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting for the clip to be decoded.");
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof UnsupportedAudioFileException) throw (UnsupportedAudioFileException) cause;
+            if (cause instanceof IOException) throw new IOException(cause.getMessage(), cause);
+            if (cause instanceof RuntimeException) throw (RuntimeException) cause;
+            throw new IOException(cause);
+        }
+    }
+
+    /**
+     * Caches the clip and evicts the least recently played ones over the budget. Holds the lock of clips.
+     */
+    private void put(Key key, DecodedClip clip) {
+        DecodedClip old = clips.put(key, clip);
+        if (old != null) bytes -= old.getByteLength();
+        bytes += clip.getByteLength();
+        Iterator<DecodedClip> eldest = clips.values().iterator();
+        while (bytes > budget) {
+            DecodedClip evicted = eldest.next();
+            eldest.remove();
+            bytes -= evicted.getByteLength();
+            evictions.increment();
+        }
+    }
+
+    private record Key(Path path, long length, long lastModified,
+                       String encoding, float sampleRate, int sampleSize, int channels, boolean bigEndian) {
+    }
+}
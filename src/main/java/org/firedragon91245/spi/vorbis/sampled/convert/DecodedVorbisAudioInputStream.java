@@ -22,20 +22,14 @@
 
 package org.firedragon91245.spi.vorbis.sampled.convert;
 
-import com.jcraft.jogg.Packet;
-import com.jcraft.jogg.Page;
-import com.jcraft.jogg.StreamState;
-import com.jcraft.jogg.SyncState;
-import com.jcraft.jorbis.Block;
-import com.jcraft.jorbis.Comment;
-import com.jcraft.jorbis.DspState;
-import com.jcraft.jorbis.Info;
 import org.firedragon91245.spi.PropertiesContainer;
+import org.firedragon91245.spi.vorbis.sampled.file.SeekableChannelInputStream;
+import org.firedragon91245.spi.vorbis.sampled.file.SeekableVorbisAudioInputStream;
 import org.tritonus.share.TDebug;
-import org.tritonus.share.sampled.convert.TAsynchronousFilteredAudioInputStream;
 
 import javax.sound.sampled.AudioFormat;
 import javax.sound.sampled.AudioInputStream;
+import java.io.ByteArrayInputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.util.HashMap;
@@ -43,67 +37,87 @@ import java.util.Map;
 
 /**
  * This class implements the Vorbis decoding.
+ * <p>
+ * Decoding runs on the thread that reads: {@link #read(byte[], int, int)} decodes into a {@link SpscRingBuffer}
+ * until the request can be served or the ring is full, and then reads from it. There is no second thread and so
+ * no handoff to wait for; the ring only holds what was decoded ahead, and only its non-blocking operations are
+ * used. To decode on other threads ahead of a real-time reader, open the stream with a
+ * {@link VorbisDecodeScheduler}, whose readers wait on the ring with its spin-then-park policy.
+ * {@link DirectDecodedVorbisAudioInputStream} decodes straight into the reader's array instead.
+ * Streams over a {@link SeekableVorbisAudioInputStream} support {@link #seekToFrame(long)}.
  */
-public class DecodedVorbisAudioInputStream extends TAsynchronousFilteredAudioInputStream implements PropertiesContainer {
+public class DecodedVorbisAudioInputStream extends AudioInputStream implements PropertiesContainer {
     static final int playState_NeedHeaders = 0;
     static final int playState_ReadData = 1;
     static final int playState_WriteData = 2;
     static final int playState_Done = 3;
     static final int playState_BufferFull = 4;
     static final int playState_Corrupt = -1;
-    // bout is now a global so that we can continue from when we have a buffer full.
-    int bout = 0;
     private final InputStream oggBitStream_;
-    private SyncState oggSyncState_ = null;
-    private StreamState oggStreamState_ = null;
-    private Page oggPage_ = null;
-    private Packet oggPacket_ = null;
-    private Info vorbisInfo = null;
-    private Comment vorbisComment = null;
-    private DspState vorbisDspState = null;
-    private Block vorbisBlock = null;
+    private final VorbisDecoder decoder;
+    private final SeekableChannelInputStream source;
     private int playState;
-    private final int bufferMultiple_ = 4;
-    private final int bufferSize_ = bufferMultiple_ * 256 * 2;
-    private int convsize = bufferSize_ * 2;
-    private final byte[] convbuffer = new byte[convsize];
-    private byte[] buffer = null;
-    private int bytes = 0;
-    private float[][][] _pcmf = null;
-    private int[] _index = null;
-    private int index = 0;
-    private int i = 0;
+    private final BufferSizing sizing;
+    private final SpscRingBuffer ring;
+    private byte[] convbuffer;
+    private byte[] skipBuffer = null;
     private Map<String, Object> properties = null;
-    private long currentBytes = 0;
+    // start of the current buffer full wait and the number of times the buffer was found full
+    private long stallStart = 0;
+    private int stallAttempts = 0;
 
     /**
      * Constructor.
+     * <p>
+     * The ring buffer and the read sizes follow the
+     * {@value VorbisFormatConversionProvider#BUFFERING_PROPERTY} property of the output format.
      */
     public DecodedVorbisAudioInputStream(AudioFormat outputFormat, AudioInputStream bitStream) {
-        super(outputFormat, -1);
+        super(new ByteArrayInputStream(new byte[0]), outputFormat, VorbisDecoder.frameLength(bitStream));
         this.oggBitStream_ = bitStream;
-        init_jorbis();
-        index = 0;
+        this.decoder = new VorbisDecoder(outputFormat);
+        this.sizing = new BufferSizing(outputFormat);
+        int capacity = BufferSizing.ringBufferSize(outputFormat);
+        this.ring = new SpscRingBuffer(capacity - capacity % decoder.frameSize(), false);
+        this.convbuffer = new byte[sizing.chunkSize()];
+        this.source = bitStream instanceof SeekableVorbisAudioInputStream
+                ? ((SeekableVorbisAudioInputStream) bitStream).getSource() : null;
         playState = playState_NeedHeaders;
         properties = new HashMap<>();
     }
 
     /**
-     * Initializes all the jOrbis and jOgg vars that are used for song playback.
+     * @return true if the stream supports {@link #seekToFrame(long)} and {@link #seekToTime(long)}
      */
-    private void init_jorbis() {
-        oggSyncState_ = new SyncState();
-        oggStreamState_ = new StreamState();
-        oggPage_ = new Page();
-        oggPacket_ = new Packet();
-        vorbisInfo = new Info();
-        vorbisComment = new Comment();
-        vorbisDspState = new DspState();
-        vorbisBlock = new Block(vorbisDspState);
-        buffer = null;
-        bytes = 0;
-        currentBytes = 0L;
-        oggSyncState_.init();
+    public boolean isSeekable() {
+        return source != null;
+    }
+
+    /**
+     * Moves the stream to the given sample frame, sample accurately.
+     * Decoded data still in the ring buffer is dropped.
+     *
+     * @return the new frame position, smaller than frame only if the stream ends before it
+     * @throws IOException if the stream is not {@link #isSeekable() seekable} or already at its end
+     */
+    public long seekToFrame(long frame) throws IOException {
+        if (source == null) throw new IOException("Stream is not seekable.");
+        if (playState == playState_Done || playState == playState_Corrupt) throw new IOException("Stream is closed.");
+        ring.skip(ring.availableRead());
+        framePos = decoder.seek(source, sizing.readSize(), frame);
+        playState = playState_ReadData;
+        return framePos;
+    }
+
+    /**
+     * Moves the stream to the given time.
+     *
+     * @param microseconds time from the start of the stream
+     * @return the new frame position
+     * @see #seekToFrame(long)
+     */
+    public long seekToTime(long microseconds) throws IOException {
+        return seekToFrame(Math.round(microseconds * (double) getFormat().getSampleRate() / 1000000));
     }
 
     /**
@@ -111,17 +125,31 @@ public class DecodedVorbisAudioInputStream extends TAsynchronousFilteredAudioInp
      *
      * <ul>
      * <li><b>ogg.position.byte</b> [Long], current position in bytes in the stream.
+     * <li><b>ogg.serial</b> [Integer], serial number of the logical stream being decoded.
+     * <li><b>ogg.link</b> [Integer], index of that stream in a chained stream, 0 for the first.
+     * <li><b>ogg.decode.bytes</b> [Long], compressed bytes read.
+     * <li><b>ogg.decode.pages</b> [Long], Ogg pages taken from the input.
+     * <li><b>ogg.decode.packets</b> [Long], header and audio packets processed.
+     * <li><b>ogg.decode.packets.failed</b> [Long], audio packets the Vorbis synthesis rejected.
+     * <li><b>ogg.decode.samples</b> [Long], sample frames decoded.
+     * <li><b>ogg.decode.time.synthesis</b> [Long], nanoseconds spent in the Vorbis synthesis.
+     * <li><b>ogg.decode.time.conversion</b> [Long], nanoseconds spent converting to the output format.
+     * <li><b>ogg.decode.time.io</b> [Long], nanoseconds spent reading compressed data.
+     * <li><b>ogg.decode.stalls</b> [Long], times decoding paused because the ring buffer was full.
      * </ul>
      */
     public Map<String, Object> properties() {
-        properties.put("ogg.position.byte", currentBytes);
+        properties.put("ogg.position.byte", decoder.bytesRead());
+        properties.put("ogg.serial", decoder.serialNumber());
+        properties.put("ogg.link", decoder.link());
+        decoder.metrics().putProperties(properties);
         return properties;
     }
 
     /**
-     * Main loop.
+     * One step of the decoding state machine.
      */
-    public void execute() {
+    private void execute() {
         if (TDebug.TraceAudioConverter) {
             switch (playState) {
                 case playState_NeedHeaders:
@@ -147,103 +175,25 @@ public class DecodedVorbisAudioInputStream extends TAsynchronousFilteredAudioInp
         // This code was developed by the jCraft group, as JOrbisPlayer.java,  slightly
         // modified by jOggPlayer developer and adapted by JavaZOOM to suit the JavaSound
         // SPI. Then further modified by Tom Kimpton to correctly play ogg files that
-        // would hang the player.
-        int result;
+        // would hang the player. The jorbis state now lives in VorbisDecoder.
         switch (playState) {
             case playState_NeedHeaders:
                 try {
                     // Headers (+ Comments).
-                    readHeaders();
+                    decoder.readHeaders(oggBitStream_, sizing.readSize());
                 } catch (IOException ioe) {
+                    if (TDebug.TraceAudioConverter) TDebug.out(ioe.getMessage());
                     playState = playState_Corrupt;
                     return;
                 }
                 playState = playState_ReadData;
                 break;
 
-
             case playState_ReadData:
-                index = oggSyncState_.buffer(bufferSize_);
-                buffer = oggSyncState_.data;
-                bytes = readFromStream(buffer, index);
-                if (TDebug.TraceAudioConverter) TDebug.out("More data : " + bytes);
-                if (bytes == -1) {
-                    playState = playState_Done;
-                    if (TDebug.TraceAudioConverter)
-                        TDebug.out("Ogg Stream empty. Settings playState to playState_Done.");
-                    break;
-                } else {
-                    oggSyncState_.wrote(bytes);
-                    if (bytes == 0) {
-                        if ((oggPage_.eos() != 0) || (oggStreamState_.e_o_s != 0) || (oggPacket_.e_o_s != 0)) {
-                            if (TDebug.TraceAudioConverter)
-                                TDebug.out("oggSyncState wrote 0 bytes: settings playState to playState_Done.");
-                            playState = playState_Done;
-                        }
-                        if (TDebug.TraceAudioConverter)
-                            TDebug.out("oggSyncState wrote 0 bytes: but stream not yet empty.");
-                        break;
-                    }
-                }
-
-                result = oggSyncState_.pageout(oggPage_);
-                if (result == 0) {
-                    if (TDebug.TraceAudioConverter) TDebug.out("Setting playState to playState_ReadData.");
-                    playState = playState_ReadData;
-                    break;
-                } // need more data
-                if (result == -1) { // missing or corrupt data at this page position
-                    if (TDebug.TraceAudioConverter)
-                        TDebug.out("Corrupt or missing data in bitstream; setting playState to playState_ReadData");
-                    playState = playState_ReadData;
-                    break;
-                }
-
-                oggStreamState_.pagein(oggPage_);
-
-                if (TDebug.TraceAudioConverter) TDebug.out("Setting playState to playState_WriteData.");
-                playState = playState_WriteData;
-                break;
-
             case playState_WriteData:
-                // Decoding !
-                if (TDebug.TraceAudioConverter) TDebug.out("Decoding");
-                while (true) {
-                    result = oggStreamState_.packetout(oggPacket_);
-                    if (result == 0) {
-                        if (TDebug.TraceAudioConverter) TDebug.out("Packetout returned 0, going to read state.");
-                        playState = playState_ReadData;
-                        break;
-                    } // need more data
-                    else if (result == -1) {
-                        // missing or corrupt data at this page position
-                        // no reason to complain; already complained above
-                        if (TDebug.TraceAudioConverter)
-                            TDebug.out("Corrupt or missing data in packetout bitstream; going to read state...");
-                        // playState = playState_ReadData;
-                        // break;
-                    } else {
-                        // we have a packet.  Decode it
-                        if (vorbisBlock.synthesis(oggPacket_) == 0) { // test for success!
-                            vorbisDspState.synthesis_blockin(vorbisBlock);
-                        } else {
-                            //if(TDebug.TraceAudioConverter) TDebug.out("vorbisBlock.synthesis() returned !0, going to read state");
-                            if (TDebug.TraceAudioConverter)
-                                TDebug.out("VorbisBlock.synthesis() returned !0, continuing.");
-                            continue;
-                        }
-
-                        outputSamples();
-                        if (playState == playState_BufferFull)
-                            return;
-
-                    } // else result != -1
-                } // while(true)
-                if (oggPage_.eos() != 0) {
-                    if (TDebug.TraceAudioConverter) TDebug.out("Settings playState to playState_Done.");
-                    playState = playState_Done;
-                }
+                outputSamples();
                 break;
+
             case playState_BufferFull:
                 continueFromBufferFull();
                 break;
@@ -252,17 +202,13 @@ public class DecodedVorbisAudioInputStream extends TAsynchronousFilteredAudioInp
                 if (TDebug.TraceAudioConverter) TDebug.out("Corrupt Song.");
                 // drop through to playState_Done...
             case playState_Done:
-                oggStreamState_.clear();
-                vorbisBlock.clear();
-                vorbisDspState.clear();
-                vorbisInfo.clear();
-                oggSyncState_.clear();
+                decoder.clear();
                 if (TDebug.TraceAudioConverter) TDebug.out("Done Song.");
                 try {
                     if (oggBitStream_ != null) {
                         oggBitStream_.close();
                     }
-                    getCircularBuffer().close();
+                    ring.close();
                 } catch (Exception e) {
                     if (TDebug.TraceAudioConverter) TDebug.out(e.getMessage());
                 }
@@ -271,185 +217,126 @@ public class DecodedVorbisAudioInputStream extends TAsynchronousFilteredAudioInp
     }
 
     /**
-     * This routine was extracted so that when the output buffer fills up,
-     * we can break out of the loop, let the music channel drain, then
-     * continue from where we were.
+     * Decodes as much as the ring buffer can take. Samples that do not fit stay
+     * in the decoder, so when the output buffer fills up we can break out, let the
+     * music channel drain, then continue from where we were.
      */
     private void outputSamples() {
-        int samples;
-        while ((samples = vorbisDspState.synthesis_pcmout(_pcmf, _index)) > 0) {
-            float[][] pcmf = _pcmf[0];
-            bout = Math.min(samples, convsize);
-            double fVal;
-            // convert doubles to 16 bit signed ints (host order) and
-            // interleave
-            for (i = 0; i < vorbisInfo.channels; i++) {
-                int pointer = i * 2;
-                //int ptr=i;
-                int mono = _index[i];
-                for (int j = 0; j < bout; j++) {
-                    fVal = pcmf[i][mono + j] * 32767.;
-                    int val = (int) (fVal);
-                    if (val > 32767) {
-                        val = 32767;
-                    }
-                    if (val < -32768) {
-                        val = -32768;
-                    }
-                    if (val < 0) {
-                        val = val | 0x8000;
-                    }
-                    convbuffer[pointer] = (byte) (val);
-                    convbuffer[pointer + 1] = (byte) (val >>> 8);
-                    pointer += 2 * (vorbisInfo.channels);
-                }
-            }
-            if (TDebug.TraceAudioConverter) TDebug.out("about to write: " + 2 * vorbisInfo.channels * bout);
-            if (getCircularBuffer().availableWrite() < 2 * vorbisInfo.channels * bout) {
-                if (TDebug.TraceAudioConverter)
-                    TDebug.out("Too much data in this data packet, better return, let the channel drain, and try again...");
-                playState = playState_BufferFull;
-                return;
-            }
-            getCircularBuffer().write(convbuffer, 0, 2 * vorbisInfo.channels * bout);
-            if (bytes < bufferSize_)
-                if (TDebug.TraceAudioConverter) TDebug.out("Finished with final buffer of music?");
-            if (vorbisDspState.synthesis_read(bout) != 0) {
-                if (TDebug.TraceAudioConverter) TDebug.out("VorbisDspState.synthesis_read returned -1.");
-            }
-        } // while(samples...)
+        int length = sizing.decodeSize(ring.availableWrite());
+        if (length < decoder.frameSize()) {
+            if (TDebug.TraceAudioConverter)
+                TDebug.out("Too much data in this data packet, better return, let the channel drain, and try again...");
+            playState = playState_BufferFull;
+            decoder.metrics().bufferFull();
+            stallStart = System.nanoTime();
+            stallAttempts = 1;
+            return;
+        }
+        int bytes;
+        try {
+            playState = playState_WriteData;
+            if (length > convbuffer.length) convbuffer = new byte[length];
+            bytes = decoder.read(oggBitStream_, sizing.readSize(), convbuffer, 0, length);
+            sizing.update(decoder.metrics().bytesRead(), decoder.metrics().samples());
+        } catch (IOException ioe) {
+            if (TDebug.TraceAudioConverter) TDebug.out("Cannot Read Selected Song: " + ioe.getMessage());
+            playState = playState_Corrupt;
+            return;
+        }
+        if (bytes == -1) {
+            if (TDebug.TraceAudioConverter) TDebug.out("Ogg Stream empty. Settings playState to playState_Done.");
+            playState = playState_Done;
+            return;
+        }
+        if (TDebug.TraceAudioConverter) TDebug.out("about to write: " + bytes);
+        ring.write(convbuffer, 0, bytes);
         playState = playState_ReadData;
     }
 
     private void continueFromBufferFull() {
-        if (getCircularBuffer().availableWrite() < 2 * vorbisInfo.channels * bout) {
+        if (ring.availableWrite() < decoder.frameSize()) {
             if (TDebug.TraceAudioConverter)
                 TDebug.out("Too much data in this data packet, better return, let the channel drain, and try again...");
             // Don't change play state.
+            stallAttempts++;
             return;
         }
-        getCircularBuffer().write(convbuffer, 0, 2 * vorbisInfo.channels * bout);
-        // Don't change play state. Let outputSamples change play state, if necessary.
+        if (DecodeMetrics.EVENTS) {
+            BufferFullEvent event = new BufferFullEvent();
+            if (event.shouldCommit()) {
+                event.waited = System.nanoTime() - stallStart;
+                event.attempts = stallAttempts;
+                event.commit();
+            }
+        }
+        // Let outputSamples change play state, if necessary.
         outputSamples();
     }
 
     /**
-     * Reads headers and comments.
+     * Reads whole frames from the ring buffer, decoding until len bytes are there, the ring is full
+     * or the stream ends.
+     *
+     * @return the number of bytes read, or -1 at the end of the stream
      */
-    private void readHeaders() throws IOException {
-        if (TDebug.TraceAudioConverter) TDebug.out("readHeaders(");
-        index = oggSyncState_.buffer(bufferSize_);
-        buffer = oggSyncState_.data;
-        bytes = readFromStream(buffer, index);
-        if (bytes == -1) {
-            if (TDebug.TraceAudioConverter) TDebug.out("Cannot get any data from selected Ogg bitstream.");
-            throw new IOException("Cannot get any data from selected Ogg bitstream.");
-        }
-        oggSyncState_.wrote(bytes);
-        if (oggSyncState_.pageout(oggPage_) != 1) {
-            if (bytes < bufferSize_) {
-                throw new IOException("EOF");
-            }
-            if (TDebug.TraceAudioConverter) TDebug.out("Input does not appear to be an Ogg bitstream.");
-            throw new IOException("Input does not appear to be an Ogg bitstream.");
-        }
-        oggStreamState_.init(oggPage_.serialno());
-        vorbisInfo.init();
-        vorbisComment.init();
-        if (oggStreamState_.pagein(oggPage_) < 0) {
-            // error; stream version mismatch perhaps
-            if (TDebug.TraceAudioConverter) TDebug.out("Error reading first page of Ogg bitstream data.");
-            throw new IOException("Error reading first page of Ogg bitstream data.");
-        }
-        if (oggStreamState_.packetout(oggPacket_) != 1) {
-            // no page? must not be vorbis
-            if (TDebug.TraceAudioConverter) TDebug.out("Error reading initial header packet.");
-            throw new IOException("Error reading initial header packet.");
-        }
-        if (vorbisInfo.synthesis_headerin(vorbisComment, oggPacket_) < 0) {
-            // error case; not a vorbis header
-            if (TDebug.TraceAudioConverter) TDebug.out("This Ogg bitstream does not contain Vorbis audio data.");
-            throw new IOException("This Ogg bitstream does not contain Vorbis audio data.");
-        }
-        //int i = 0;
-        i = 0;
-        while (i < 2) {
-            while (i < 2) {
-                int result = oggSyncState_.pageout(oggPage_);
-                if (result == 0) {
-                    break;
-                } // Need more data
-                if (result == 1) {
-                    oggStreamState_.pagein(oggPage_);
-                    while (i < 2) {
-                        result = oggStreamState_.packetout(oggPacket_);
-                        if (result == 0) {
-                            break;
-                        }
-                        if (result == -1) {
-                            if (TDebug.TraceAudioConverter) TDebug.out("Corrupt secondary header.  Exiting.");
-                            throw new IOException("Corrupt secondary header.  Exiting.");
-                        }
-                        vorbisInfo.synthesis_headerin(vorbisComment, oggPacket_);
-                        i++;
-                    }
-                }
-            }
-            index = oggSyncState_.buffer(bufferSize_);
-            buffer = oggSyncState_.data;
-            bytes = readFromStream(buffer, index);
-            if (bytes == -1) {
-                break;
-            }
-            if (bytes == 0 && i < 2) {
-                if (TDebug.TraceAudioConverter) TDebug.out("End of file before finding all Vorbis headers!");
-                throw new IOException("End of file before finding all Vorbis  headers!");
-            }
-            oggSyncState_.wrote(bytes);
+    public int read(byte[] b, int off, int len) throws IOException {
+        int frameSize = decoder.frameSize();
+        len -= len % frameSize;
+        if (len == 0) return 0;
+        while (ring.availableRead() < len && ring.availableWrite() >= frameSize && !ring.isClosed()) {
+            execute();
         }
+        int bytes = ring.read(b, off, len);
+        if (bytes == 0 && ring.isClosed()) return -1;
+        framePos += bytes / frameSize;
+        return bytes;
+    }
 
-        byte[][] ptr = vorbisComment.user_comments;
-        String currComment;
+    public int read() throws IOException {
+        if (decoder.frameSize() != 1) throw new IOException("cannot read a single byte if frame size > 1");
+        byte[] b = new byte[1];
+        return read(b, 0, 1) <= 0 ? -1 : b[0] & 0xff;
+    }
 
-        for (byte[] value : ptr) {
-            if (value == null) {
-                break;
-            }
-            currComment = (new String(value, 0, value.length - 1)).trim();
-            if (TDebug.TraceAudioConverter) TDebug.out("Comment: " + currComment);
+    /**
+     * Skips whole frames, decoding and discarding them.
+     */
+    public long skip(long n) throws IOException {
+        if (n <= 0) return 0;
+        if (skipBuffer == null) skipBuffer = new byte[convbuffer.length];
+        long skipped = 0;
+        while (skipped < n) {
+            int bytes = read(skipBuffer, 0, (int) Math.min(skipBuffer.length, n - skipped));
+            if (bytes <= 0) break;
+            skipped += bytes;
         }
-        convsize = bufferSize_ / vorbisInfo.channels;
-        vorbisDspState.synthesis_init(vorbisInfo);
-        vorbisBlock.init(vorbisDspState);
-        _pcmf = new float[1][][];
-        _index = new int[vorbisInfo.channels];
+        return skipped;
     }
 
     /**
-     * Reads from the oggBitStream_ a specified number of Bytes(bufferSize_) worth
-     * starting at index and puts them in the specified buffer[].
-     *
-     * @param buffer buffer
-     * @param index  index
-     * @return the number of bytes read or -1 if error.
+     * Decoded bytes that can be read without decoding.
      */
-    private int readFromStream(byte[] buffer, int index) {
-        int bytes;
-        try {
-            bytes = oggBitStream_.read(buffer, index, 2048);
-        } catch (Exception e) {
-            if (TDebug.TraceAudioConverter) TDebug.out("Cannot Read Selected Song");
-            bytes = -1;
-        }
-        currentBytes = currentBytes + bytes;
-        return bytes;
+    public int available() {
+        return ring.availableRead();
+    }
+
+    public boolean markSupported() {
+        return false;
+    }
+
+    public void mark(int readlimit) {
+    }
+
+    public void reset() throws IOException {
+        throw new IOException("mark/reset not supported");
     }
 
     /**
      * Close the stream.
      */
     public void close() throws IOException {
-        super.close();
+        ring.close();
+        decoder.metrics().close();
         oggBitStream_.close();
     }
 }
@@ -0,0 +1,174 @@
+/*
+	vorbisspi-repackaged - a modernized and modularized version of vorbisspi by javazoom
+    Copyright (C) 2024 FireDragon91245
+
+    This library is free software; you can redistribute it and/or
+    modify it under the terms of the GNU Lesser General Public
+    License as published by the Free Software Foundation; either
+    version 2.1 of the License, or (at your option) any later version.
+
+    This library is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+    Lesser General Public License for more details.
+
+    You should have received a copy of the GNU Lesser General Public
+    License along with this library; if not, write to the Free Software
+    Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301
+    USA
+ */
+
+package org.firedragon91245.spi.vorbis.sampled.convert;
+
+import org.firedragon91245.spi.PropertiesContainer;
+import org.firedragon91245.spi.vorbis.sampled.file.SeekableChannelInputStream;
+import org.firedragon91245.spi.vorbis.sampled.file.SeekableVorbisAudioInputStream;
+import org.tritonus.share.TDebug;
+
+import javax.sound.sampled.AudioFormat;
+import javax.sound.sampled.AudioInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Synchronous, pull-mode Vorbis decoding.
+ * <p>
+ * Unlike {@link DecodedVorbisAudioInputStream} there is no ring buffer in between: every
+ * {@link #read(byte[], int, int)} decodes packets on demand straight into the caller's array.
+ * Samples that do not fit are carried over to the next call.
+ * <p>
+ * Streams over a {@link SeekableVorbisAudioInputStream} support {@link #seekToFrame(long)}.
+ * <p>
+ * Returned by {@link VorbisFormatConversionProvider} when the target format has the
+ * {@value VorbisFormatConversionProvider#DIRECT_PROPERTY} property set to {@link Boolean#TRUE},
+ * or can be constructed directly.
+ */
+public class DirectDecodedVorbisAudioInputStream extends AudioInputStream implements PropertiesContainer {
+    // frames decoded per step when skipping
+    private static final int SKIP_FRAMES = 4096;
+    private final InputStream oggBitStream_;
+    private final VorbisDecoder decoder;
+    private final SeekableChannelInputStream source;
+    private final BufferSizing sizing;
+    private final Map<String, Object> properties = new HashMap<>();
+    private byte[] skipBuffer = null;
+
+    /**
+     * Constructor.
+     * <p>
+     * The read sizes follow the {@value VorbisFormatConversionProvider#BUFFERING_PROPERTY} property of the output format.
+     */
+    public DirectDecodedVorbisAudioInputStream(AudioFormat outputFormat, AudioInputStream bitStream) {
+        super(new ByteArrayInputStream(new byte[0]), outputFormat, VorbisDecoder.frameLength(bitStream));
+        this.oggBitStream_ = bitStream;
+        this.decoder = new VorbisDecoder(outputFormat);
+        this.sizing = new BufferSizing(outputFormat);
+        this.source = bitStream instanceof SeekableVorbisAudioInputStream
+                ? ((SeekableVorbisAudioInputStream) bitStream).getSource() : null;
+    }
+
+    /**
+     * @return true if the stream supports {@link #seekToFrame(long)} and {@link #seekToTime(long)}
+     */
+    public boolean isSeekable() {
+        return source != null;
+    }
+
+    /**
+     * Moves the stream to the given sample frame, sample accurately.
+     *
+     * @return the new frame position, smaller than frame only if the stream ends before it
+     * @throws IOException if the stream is not {@link #isSeekable() seekable}
+     */
+    public long seekToFrame(long frame) throws IOException {
+        if (source == null) throw new IOException("Stream is not seekable.");
+        framePos = decoder.seek(source, sizing.readSize(), frame);
+        return framePos;
+    }
+
+    /**
+     * Moves the stream to the given time.
+     *
+     * @param microseconds time from the start of the stream
+     * @return the new frame position
+     * @see #seekToFrame(long)
+     */
+    public long seekToTime(long microseconds) throws IOException {
+        return seekToFrame(Math.round(microseconds * (double) format.getSampleRate() / 1000000));
+    }
+
+    /**
+     * Return dynamic properties.
+     *
+     * <ul>
+     * <li><b>ogg.position.byte</b> [Long], current position in bytes in the stream.
+     * <li><b>ogg.serial</b> [Integer], serial number of the logical stream being decoded.
+     * <li><b>ogg.link</b> [Integer], index of that stream in a chained stream, 0 for the first.
+     * <li><b>ogg.decode.bytes</b> [Long], compressed bytes read.
+     * <li><b>ogg.decode.pages</b> [Long], Ogg pages taken from the input.
+     * <li><b>ogg.decode.packets</b> [Long], header and audio packets processed.
+     * <li><b>ogg.decode.packets.failed</b> [Long], audio packets the Vorbis synthesis rejected.
+     * <li><b>ogg.decode.samples</b> [Long], sample frames decoded.
+     * <li><b>ogg.decode.time.synthesis</b> [Long], nanoseconds spent in the Vorbis synthesis.
+     * <li><b>ogg.decode.time.conversion</b> [Long], nanoseconds spent converting to the output format.
+     * <li><b>ogg.decode.time.io</b> [Long], nanoseconds spent reading compressed data.
+     * <li><b>ogg.decode.stalls</b> [Long], always 0, there is no buffer to fill.
+     * </ul>
+     */
+    public Map<String, Object> properties() {
+        properties.put("ogg.position.byte", decoder.bytesRead());
+        properties.put("ogg.serial", decoder.serialNumber());
+        properties.put("ogg.link", decoder.link());
+        decoder.metrics().putProperties(properties);
+        return properties;
+    }
+
+    /**
+     * Decodes whole frames into the buffer.
+     *
+     * @return the number of bytes read, or -1 at the end of the stream
+     */
+    public int read(byte[] b, int off, int len) throws IOException {
+        int bytes = decoder.read(oggBitStream_, sizing.readSize(), b, off, len);
+        sizing.update(decoder.metrics().bytesRead(), decoder.metrics().samples());
+        if (bytes > 0) {
+            framePos += bytes / frameSize;
+        }
+        if (TDebug.TraceAudioConverter) TDebug.out("DirectDecodedVorbisAudioInputStream.read(): " + bytes);
+        return bytes;
+    }
+
+    /**
+     * Skips by decoding and discarding whole frames.
+     */
+    public long skip(long n) throws IOException {
+        if (n <= 0) return 0;
+        if (skipBuffer == null) skipBuffer = new byte[SKIP_FRAMES * frameSize];
+        long skipped = 0;
+        while (skipped < n) {
+            int bytes = read(skipBuffer, 0, (int) Math.min(skipBuffer.length, n - skipped));
+            if (bytes <= 0) break;
+            skipped += bytes;
+        }
+        return skipped;
+    }
+
+    public int available() {
+        return 0;
+    }
+
+    public boolean markSupported() {
+        return false;
+    }
+
+    /**
+     * Close the stream.
+     */
+    public void close() throws IOException {
+        decoder.clear();
+        oggBitStream_.close();
+    }
+}
@@ -0,0 +1,205 @@
+/*
+	vorbisspi-repackaged - a modernized and modularized version of vorbisspi by javazoom
+    Copyright (C) 2024 FireDragon91245
+
+    This library is free software; you can redistribute it and/or
+    modify it under the terms of the GNU Lesser General Public
+    License as published by the Free Software Foundation; either
+    version 2.1 of the License, or (at your option) any later version.
+
+    This library is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+    Lesser General Public License for more details.
+
+    You should have received a copy of the GNU Lesser General Public
+    License along with this library; if not, write to the Free Software
+    Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301
+    USA
+ */
+
+package org.firedragon91245.spi.vorbis.sampled.convert;
+
+import org.firedragon91245.spi.vorbis.sampled.file.OggPage;
+import org.firedragon91245.spi.vorbis.sampled.file.SeekableChannelInputStream;
+import org.firedragon91245.spi.vorbis.sampled.file.VorbisAudioFileReader;
+import org.tritonus.share.TDebug;
+
+import javax.sound.sampled.AudioFormat;
+import javax.sound.sampled.AudioInputStream;
+import javax.sound.sampled.UnsupportedAudioFileException;
+import java.io.File;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Decodes one large file on several threads.
+ * <p>
+ * The file is cut into segments of a fixed number of frames. Each segment is decoded independently: the worker
+ * reads the header packets, seeks to the first frame of its segment, which restarts decoding at the Ogg page
+ * before it with at least one packet of pre-roll for the MDCT overlap, and decodes up to the next segment.
+ * The output is identical to decoding the file sequentially. Segments are written to the output in order, with
+ * only a few more segments in memory than there are threads.
+ * <p>
+ * Chained files, and files whose length is not known from their last page, are decoded sequentially.
+ */
+public final class ParallelVorbisDecoder implements AutoCloseable {
+    /**
+     * Default segment length, about 24 seconds at 44.1 kHz.
+     */
+    public static final int DEFAULT_SEGMENT_FRAMES = 1 << 20;
+    private static final int READ_SIZE = 4096;
+    private final VorbisAudioFileReader reader = new VorbisAudioFileReader();
+    private final ExecutorService executor;
+    private final int threads;
+    private final int segmentFrames;
+
+    /**
+     * Constructor, decoding on as many threads as there are processors.
+     */
+    public ParallelVorbisDecoder() {
+        this(Runtime.getRuntime().availableProcessors(), DEFAULT_SEGMENT_FRAMES);
+    }
+
+    /**
+     * Constructor.
+     *
+     * @param threads       number of segments decoded at the same time
+     * @param segmentFrames length of a segment in sample frames
+     */
+    public ParallelVorbisDecoder(int threads, int segmentFrames) {
+        if (threads < 1 || segmentFrames < 1) throw new IllegalArgumentException("threads and segmentFrames must be positive");
+        AtomicInteger count = new AtomicInteger();
+        this.executor = Executors.newFixedThreadPool(threads, r -> {
+            Thread thread = new Thread(r, "vorbis-segment-" + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.threads = threads;
+        this.segmentFrames = segmentFrames;
+    }
+
+    /**
+     * Decodes the whole file to the channel.
+     *
+     * @param targetFormat PCM format, with the sample rate and channels of the file
+     * @return the number of frames written
+     */
+    public long decode(File file, AudioFormat targetFormat, WritableByteChannel out) throws UnsupportedAudioFileException, IOException {
+        long frames;
+        try (AudioInputStream encoded = reader.getAudioInputStream(file)) {
+            AudioFormat source = encoded.getFormat();
+            if (source.getSampleRate() != targetFormat.getSampleRate() || source.getChannels() != targetFormat.getChannels()) {
+                throw new IllegalArgumentException("conversion not supported");
+            }
+            frames = VorbisDecoder.frameLength(encoded);
+            if (frames < 0 || isChained(file)) {
+                if (TDebug.TraceAudioConverter) TDebug.out("ParallelVorbisDecoder: unknown length or chained file, decoding sequentially");
+                return decodeSequentially(encoded, targetFormat, out);
+            }
+        }
+        int segments = (int) ((frames + segmentFrames - 1) / segmentFrames);
+        Deque<Future<ByteBuffer>> pending = new ArrayDeque<>();
+        int submitted = 0;
+        long written = 0;
+        try {
+            while (submitted < segments || !pending.isEmpty()) {
+                while (submitted < segments && pending.size() < 2 * threads) {
+                    long start = (long) submitted * segmentFrames;
+                    int length = (int) Math.min(segmentFrames, frames - start);
+                    pending.add(executor.submit(() -> decodeSegment(file, targetFormat, start, length)));
+                    submitted++;
+                }
+                ByteBuffer segment = pending.remove().get();
+                written += segment.remaining() / targetFormat.getFrameSize();
+                while (segment.hasRemaining()) {
+                    out.write(segment);
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while decoding " + file);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException) throw (IOException) e.getCause();
+            throw new IOException(e.getCause());
+        } finally {
+            for (Future<ByteBuffer> future : pending) {
+                future.cancel(true);
+            }
+        }
+        return written;
+    }
+
+    private ByteBuffer decodeSegment(File file, AudioFormat targetFormat, long start, int frames) throws IOException {
+        VorbisDecoder decoder = new VorbisDecoder(targetFormat);
+        try (SeekableChannelInputStream source = SeekableChannelInputStream.map(FileChannel.open(file.toPath(), StandardOpenOption.READ))) {
+            byte[] pcm = new byte[frames * decoder.frameSize()];
+            int length = 0;
+            if (decoder.seek(source, READ_SIZE, start) != start) {
+                throw new IOException("Cannot seek to frame " + start + " of " + file);
+            }
+            while (length < pcm.length) {
+                int n = decoder.read(source, READ_SIZE, pcm, length, pcm.length - length);
+                if (n < 0) {
+                    throw new IOException("Segment at frame " + start + " of " + file + " ended after "
+                            + length / decoder.frameSize() + " of " + frames + " frames");
+                }
+                length += n;
+            }
+            return ByteBuffer.wrap(pcm);
+        } finally {
+            decoder.clear();
+        }
+    }
+
+    /**
+     * Whether the file has more than one logical stream, that is pages after the last page of the first one.
+     * Segments cannot be decoded independently across links.
+     */
+    private static boolean isChained(File file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            long length = channel.size();
+            OggPage.Finder finder = new OggPage.Finder();
+            OggPage first = finder.find(channel, 0, length);
+            OggPage last = first == null ? null : finder.findLast(channel, 0, length, first.serialNumber());
+            return last == null || last.end() < length;
+        }
+    }
+
+    private static long decodeSequentially(AudioInputStream encoded, AudioFormat targetFormat, WritableByteChannel out) throws IOException {
+        VorbisDecoder decoder = new VorbisDecoder(targetFormat);
+        try {
+            byte[] pcm = new byte[64 * READ_SIZE * decoder.frameSize()];
+            long bytes = 0;
+            int n;
+            while ((n = decoder.read(encoded, READ_SIZE, pcm, 0, pcm.length)) >= 0) {
+                ByteBuffer buffer = ByteBuffer.wrap(pcm, 0, n);
+                while (buffer.hasRemaining()) {
+                    out.write(buffer);
+                }
+                bytes += n;
+            }
+            return bytes / decoder.frameSize();
+        } finally {
+            decoder.clear();
+        }
+    }
+
+    /**
+     * Stops the decoding threads.
+     */
+    public void close() {
+        executor.shutdownNow();
+    }
+}
@@ -0,0 +1,272 @@
+/*
+	vorbisspi-repackaged - a modernized and modularized version of vorbisspi by javazoom
+    Copyright (C) 2024 FireDragon91245
+
+    This library is free software; you can redistribute it and/or
+    modify it under the terms of the GNU Lesser General Public
+    License as published by the Free Software Foundation; either
+    version 2.1 of the License, or (at your option) any later version.
+
+    This library is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+    Lesser General Public License for more details.
+
+    You should have received a copy of the GNU Lesser General Public
+    License along with this library; if not, write to the Free Software
+    Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301
+    USA
+ */
+
+package org.firedragon91245.spi.vorbis.sampled.convert;
+
+import javax.sound.sampled.AudioFormat;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+/**
+ * Converts the planar float output of jorbis into interleaved PCM.
+ * <p>
+ * Supported targets are 16 and 24 bit signed integer and 32 bit IEEE float, in either byte order.
+ * All channels are written in a single pass over the frames. Quantization clamps with
+ * {@link Math#min(int, int)} / {@link Math#max(int, int)}, which the JIT turns into conditional moves,
+ * and 16 and 32 bit samples are stored with one wide write through a byte array or byte buffer view.
+ */
+final class PcmConverter {
+    private static final VarHandle SHORT = MethodHandles.byteArrayViewVarHandle(short[].class, ByteOrder.LITTLE_ENDIAN);
+    private static final VarHandle INT = MethodHandles.byteArrayViewVarHandle(int[].class, ByteOrder.LITTLE_ENDIAN);
+    private static final VarHandle BUFFER_SHORT = MethodHandles.byteBufferViewVarHandle(short[].class, ByteOrder.LITTLE_ENDIAN);
+    private static final VarHandle BUFFER_INT = MethodHandles.byteBufferViewVarHandle(int[].class, ByteOrder.LITTLE_ENDIAN);
+
+    private final int channels;
+    private final int bytesPerSample;
+    private final boolean floatSamples;
+    private final boolean bigEndian;
+
+    /**
+     * Creates a converter writing samples in the given format.
+     *
+     * @param format target PCM format
+     * @throws IllegalArgumentException if the format is not 16/24 bit signed or 32 bit float PCM
+     */
+    PcmConverter(AudioFormat format) {
+        this.channels = format.getChannels();
+        this.bytesPerSample = format.getSampleSizeInBits() / 8;
+        this.floatSamples = AudioFormat.Encoding.PCM_FLOAT.equals(format.getEncoding());
+        this.bigEndian = format.isBigEndian();
+        boolean supported = floatSamples
+                ? format.getSampleSizeInBits() == 32
+                : AudioFormat.Encoding.PCM_SIGNED.equals(format.getEncoding())
+                  && (format.getSampleSizeInBits() == 16 || format.getSampleSizeInBits() == 24);
+        if (!supported) {
+            throw new IllegalArgumentException("unsupported PCM format: " + format);
+        }
+    }
+
+    /**
+     * Size of one interleaved output frame in bytes.
+     */
+    int frameSize() {
+        return channels * bytesPerSample;
+    }
+
+    /**
+     * Converts samples into the target format.
+     *
+     * @param pcm     float samples, one array per channel
+     * @param index   offset of the first sample in each channel array
+     * @param samples number of samples per channel to convert
+     * @param out     destination buffer
+     * @param offset  offset in the destination buffer
+     * @return the number of bytes written
+     */
+    int convert(float[][] pcm, int[] index, int samples, byte[] out, int offset) {
+        if (floatSamples) {
+            toFloat32(pcm, index, channels, samples, out, offset, bigEndian);
+        } else if (bytesPerSample == 3) {
+            toPcm24(pcm, index, channels, samples, out, offset, bigEndian);
+        } else {
+            toPcm16(pcm, index, channels, samples, out, offset, bigEndian);
+        }
+        return samples * channels * bytesPerSample;
+    }
+
+    /**
+     * Converts samples into the target format at the position of the buffer, which is advanced.
+     * Heap buffers are written through their array, direct buffers in place.
+     *
+     * @return the number of bytes written
+     * @see #convert(float[][], int[], int, byte[], int)
+     */
+    int convert(float[][] pcm, int[] index, int samples, ByteBuffer out) {
+        int position = out.position();
+        int length = samples * channels * bytesPerSample;
+        if (out.hasArray()) {
+            convert(pcm, index, samples, out.array(), out.arrayOffset() + position);
+        } else if (floatSamples) {
+            toFloat32(pcm, index, channels, samples, out, position, bigEndian);
+        } else if (bytesPerSample == 3) {
+            toPcm24(pcm, index, channels, samples, out, position, bigEndian);
+        } else {
+            toPcm16(pcm, index, channels, samples, out, position, bigEndian);
+        }
+        out.position(position + length);
+        return length;
+    }
+
+    /**
+     * Converts to 16 bit signed PCM.
+     *
+     * @param pcm       float samples, one array per channel
+     * @param index     offset of the first sample in each channel array
+     * @param channels  number of channels
+     * @param samples   number of samples per channel to convert
+     * @param out       destination buffer
+     * @param offset    offset in the destination buffer
+     * @param bigEndian byte order of the destination
+     */
+    static void toPcm16(float[][] pcm, int[] index, int channels, int samples, byte[] out, int offset, boolean bigEndian) {
+        if (channels == 1) {
+            float[] mono = pcm[0];
+            int m = index[0];
+            for (int j = 0; j < samples; j++) {
+                SHORT.set(out, offset, quantize16(mono[m + j], bigEndian));
+                offset += 2;
+            }
+        } else if (channels == 2) {
+            float[] left = pcm[0];
+            float[] right = pcm[1];
+            int l = index[0];
+            int r = index[1];
+            for (int j = 0; j < samples; j++) {
+                SHORT.set(out, offset, quantize16(left[l + j], bigEndian));
+                SHORT.set(out, offset + 2, quantize16(right[r + j], bigEndian));
+                offset += 4;
+            }
+        } else {
+            for (int j = 0; j < samples; j++) {
+                for (int c = 0; c < channels; c++) {
+                    SHORT.set(out, offset, quantize16(pcm[c][index[c] + j], bigEndian));
+                    offset += 2;
+                }
+            }
+        }
+    }
+
+    /**
+     * Converts to 24 bit signed PCM.
+     *
+     * @see #toPcm16(float[][], int[], int, int, byte[], int, boolean)
+     */
+    static void toPcm24(float[][] pcm, int[] index, int channels, int samples, byte[] out, int offset, boolean bigEndian) {
+        for (int j = 0; j < samples; j++) {
+            for (int c = 0; c < channels; c++) {
+                int val = quantize24(pcm[c][index[c] + j]);
+                if (bigEndian) {
+                    out[offset] = (byte) (val >> 16);
+                    out[offset + 1] = (byte) (val >> 8);
+                    out[offset + 2] = (byte) val;
+                } else {
+                    out[offset] = (byte) val;
+                    out[offset + 1] = (byte) (val >> 8);
+                    out[offset + 2] = (byte) (val >> 16);
+                }
+                offset += 3;
+            }
+        }
+    }
+
+    /**
+     * Converts to 32 bit IEEE float PCM. Samples are passed through as decoded, without clamping.
+     *
+     * @see #toPcm16(float[][], int[], int, int, byte[], int, boolean)
+     */
+    static void toFloat32(float[][] pcm, int[] index, int channels, int samples, byte[] out, int offset, boolean bigEndian) {
+        for (int j = 0; j < samples; j++) {
+            for (int c = 0; c < channels; c++) {
+                int bits = Float.floatToRawIntBits(pcm[c][index[c] + j]);
+                INT.set(out, offset, bigEndian ? Integer.reverseBytes(bits) : bits);
+                offset += 4;
+            }
+        }
+    }
+
+    /**
+     * Converts to 16 bit signed PCM in a buffer, at absolute positions.
+     *
+     * @see #toPcm16(float[][], int[], int, int, byte[], int, boolean)
+     */
+    static void toPcm16(float[][] pcm, int[] index, int channels, int samples, ByteBuffer out, int offset, boolean bigEndian) {
+        if (channels == 1) {
+            float[] mono = pcm[0];
+            int m = index[0];
+            for (int j = 0; j < samples; j++) {
+                BUFFER_SHORT.set(out, offset, quantize16(mono[m + j], bigEndian));
+                offset += 2;
+            }
+        } else if (channels == 2) {
+            float[] left = pcm[0];
+            float[] right = pcm[1];
+            int l = index[0];
+            int r = index[1];
+            for (int j = 0; j < samples; j++) {
+                BUFFER_SHORT.set(out, offset, quantize16(left[l + j], bigEndian));
+                BUFFER_SHORT.set(out, offset + 2, quantize16(right[r + j], bigEndian));
+                offset += 4;
+            }
+        } else {
+            for (int j = 0; j < samples; j++) {
+                for (int c = 0; c < channels; c++) {
+                    BUFFER_SHORT.set(out, offset, quantize16(pcm[c][index[c] + j], bigEndian));
+                    offset += 2;
+                }
+            }
+        }
+    }
+
+    /**
+     * Converts to 24 bit signed PCM in a buffer, at absolute positions.
+     *
+     * @see #toPcm24(float[][], int[], int, int, byte[], int, boolean)
+     */
+    static void toPcm24(float[][] pcm, int[] index, int channels, int samples, ByteBuffer out, int offset, boolean bigEndian) {
+        for (int j = 0; j < samples; j++) {
+            for (int c = 0; c < channels; c++) {
+                int val = quantize24(pcm[c][index[c] + j]);
+                out.put(offset, (byte) (bigEndian ? val >> 16 : val));
+                out.put(offset + 1, (byte) (val >> 8));
+                out.put(offset + 2, (byte) (bigEndian ? val : val >> 16));
+                offset += 3;
+            }
+        }
+    }
+
+    /**
+     * Converts to 32 bit IEEE float PCM in a buffer, at absolute positions.
+     *
+     * @see #toFloat32(float[][], int[], int, int, byte[], int, boolean)
+     */
+    static void toFloat32(float[][] pcm, int[] index, int channels, int samples, ByteBuffer out, int offset, boolean bigEndian) {
+        for (int j = 0; j < samples; j++) {
+            for (int c = 0; c < channels; c++) {
+                int bits = Float.floatToRawIntBits(pcm[c][index[c] + j]);
+                BUFFER_INT.set(out, offset, bigEndian ? Integer.reverseBytes(bits) : bits);
+                offset += 4;
+            }
+        }
+    }
+
+    private static int quantize24(float sample) {
+        return Math.max(-8388608, Math.min(8388607, (int) (sample * 8388607.)));
+    }
+
+    /**
+     * Same scaling as the original JOrbisPlayer loop, so the output stays bit exact.
+     */
+    private static short quantize16(float sample, boolean bigEndian) {
+        int val = Math.max(-32768, Math.min(32767, (int) (sample * 32767.)));
+        return bigEndian ? Short.reverseBytes((short) val) : (short) val;
+    }
+}
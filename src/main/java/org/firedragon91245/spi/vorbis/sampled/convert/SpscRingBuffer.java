@@ -0,0 +1,235 @@
+/*
+	vorbisspi-repackaged - a modernized and modularized version of vorbisspi by javazoom
+    Copyright (C) 2024 FireDragon91245
+
+    This library is free software; you can redistribute it and/or
+    modify it under the terms of the GNU Lesser General Public
+    License as published by the Free Software Foundation; either
+    version 2.1 of the License, or (at your option) any later version.
+
+    This library is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+    Lesser General Public License for more details.
+
+    You should have received a copy of the GNU Lesser General Public
+    License along with this library; if not, write to the Free Software
+    Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301
+    USA
+ */
+
+package org.firedragon91245.spi.vorbis.sampled.convert;
+
+import java.io.InterruptedIOException;
+import java.nio.ByteBuffer;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Lock-free byte ring buffer between one producer and one consumer thread.
+ * <p>
+ * The read and write positions only ever grow; each side owns one of them and publishes it with a volatile
+ * store, so neither {@link #write(byte[], int, int)} nor {@link #read(byte[], int, int)} takes a lock.
+ * Each side also caches the last position it saw of the other side and only reloads it when the cached
+ * value says the buffer is full or empty.
+ * <p>
+ * The blocking waits spin briefly, then park until the other side signals progress. The volatile stores
+ * of the positions and of the waiting thread make sure no wake-up is lost; the park still has a short
+ * timeout as a safety net. They only matter with two threads, as in {@link VorbisDecodeScheduler}, where a
+ * worker decodes and the reader waits. {@link DecodedVorbisAudioInputStream} decodes on its reader's thread
+ * and uses only the non-blocking operations.
+ * <p>
+ * The storage is a heap array or a direct buffer, rounded up to a power of two; at most the requested
+ * capacity is ever filled.
+ */
+final class SpscRingBuffer {
+    private static final int SPINS = 128;
+    private static final long PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(1);
+
+    private final byte[] array;
+    private final ByteBuffer buffer;
+    private final int capacity;
+    private final int mask;
+    private final AtomicLong writePosition = new AtomicLong();
+    private final AtomicLong readPosition = new AtomicLong();
+    // the producer's last view of readPosition
+    private long cachedRead = 0;
+    // the consumer's last view of writePosition
+    private long cachedWrite = 0;
+    private volatile boolean closed = false;
+    private volatile Thread waitingReader = null;
+    private volatile Thread waitingWriter = null;
+
+    /**
+     * Constructor.
+     *
+     * @param capacity most bytes held at once
+     * @param direct   true for off-heap storage
+     */
+    SpscRingBuffer(int capacity, boolean direct) {
+        if (capacity < 1 || capacity > 1 << 30) throw new IllegalArgumentException("capacity out of range: " + capacity);
+        int size = Integer.highestOneBit(capacity);
+        if (size < capacity) size <<= 1;
+        this.capacity = capacity;
+        this.mask = size - 1;
+        this.array = direct ? null : new byte[size];
+        this.buffer = direct ? ByteBuffer.allocateDirect(size) : null;
+    }
+
+    int capacity() {
+        return capacity;
+    }
+
+    /**
+     * Bytes that can be read now.
+     */
+    int availableRead() {
+        return (int) (writePosition.getAcquire() - readPosition.get());
+    }
+
+    /**
+     * Bytes that can be written now.
+     */
+    int availableWrite() {
+        return capacity - (int) (writePosition.get() - readPosition.getAcquire());
+    }
+
+    /**
+     * Writes as much as fits without waiting. Producer only.
+     *
+     * @return the number of bytes written, 0 if the buffer is full or closed
+     */
+    int write(byte[] b, int off, int len) {
+        if (closed) return 0;
+        long write = writePosition.get();
+        if (capacity - (int) (write - cachedRead) < len) cachedRead = readPosition.getAcquire();
+        int n = Math.min(len, capacity - (int) (write - cachedRead));
+        if (n <= 0) return 0;
+        int index = (int) write & mask;
+        int first = Math.min(n, mask + 1 - index);
+        put(index, b, off, first);
+        put(0, b, off + first, n - first);
+        writePosition.set(write + n);
+        signal(waitingReader);
+        return n;
+    }
+
+    /**
+     * Reads what is there without waiting. Consumer only.
+     *
+     * @return the number of bytes read, 0 if the buffer is empty
+     */
+    int read(byte[] b, int off, int len) {
+        long read = readPosition.get();
+        if ((int) (cachedWrite - read) < len) cachedWrite = writePosition.getAcquire();
+        int n = Math.min(len, (int) (cachedWrite - read));
+        if (n <= 0) return 0;
+        int index = (int) read & mask;
+        int first = Math.min(n, mask + 1 - index);
+        get(index, b, off, first);
+        get(0, b, off + first, n - first);
+        readPosition.set(read + n);
+        signal(waitingWriter);
+        return n;
+    }
+
+    /**
+     * Drops up to n buffered bytes. Consumer only.
+     *
+     * @return the number of bytes dropped
+     */
+    int skip(int n) {
+        long read = readPosition.get();
+        int skip = Math.min(n, (int) (writePosition.getAcquire() - read));
+        if (skip <= 0) return 0;
+        readPosition.set(read + skip);
+        signal(waitingWriter);
+        return skip;
+    }
+
+    /**
+     * Waits until n bytes can be read or the buffer is closed. Consumer only.
+     *
+     * @return true if n bytes can be read
+     */
+    boolean awaitReadable(int n) throws InterruptedIOException {
+        for (int spin = 0; availableRead() < n; spin++) {
+            if (closed) return availableRead() >= n;
+            if (spin < SPINS) {
+                Thread.onSpinWait();
+                continue;
+            }
+            waitingReader = Thread.currentThread();
+            try {
+                if (availableRead() < n && !closed) park();
+            } finally {
+                waitingReader = null;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Waits until n bytes can be written or the buffer is closed. Producer only.
+     *
+     * @return true if n bytes can be written
+     */
+    boolean awaitWritable(int n) throws InterruptedIOException {
+        if (n > capacity) throw new IllegalArgumentException("n > capacity");
+        for (int spin = 0; availableWrite() < n; spin++) {
+            if (closed) return false;
+            if (spin < SPINS) {
+                Thread.onSpinWait();
+                continue;
+            }
+            waitingWriter = Thread.currentThread();
+            try {
+                if (availableWrite() < n && !closed) park();
+            } finally {
+                waitingWriter = null;
+            }
+        }
+        return !closed;
+    }
+
+    /**
+     * Ends the stream: writes are refused, reads drain what is left. Wakes up both sides.
+     */
+    void close() {
+        closed = true;
+        signal(waitingReader);
+        signal(waitingWriter);
+    }
+
+    boolean isClosed() {
+        return closed;
+    }
+
+    private static void park() throws InterruptedIOException {
+        LockSupport.parkNanos(PARK_NANOS);
+        if (Thread.interrupted()) throw new InterruptedIOException("Interrupted while waiting for the ring buffer");
+    }
+
+    private static void signal(Thread waiter) {
+        if (waiter != null) LockSupport.unpark(waiter);
+    }
+
+    private void put(int index, byte[] b, int off, int len) {
+        if (len <= 0) return;
+        if (array != null) {
+            System.arraycopy(b, off, array, index, len);
+        } else {
+            buffer.put(index, b, off, len);
+        }
+    }
+
+    private void get(int index, byte[] b, int off, int len) {
+        if (len <= 0) return;
+        if (array != null) {
+            System.arraycopy(array, index, b, off, len);
+        } else {
+            buffer.get(index, b, off, len);
+        }
+    }
+}
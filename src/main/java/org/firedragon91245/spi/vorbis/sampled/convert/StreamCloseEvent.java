@@ -0,0 +1,66 @@
+/*
+	vorbisspi-repackaged - a modernized and modularized version of vorbisspi by javazoom
+    Copyright (C) 2024 FireDragon91245
+
+    This library is free software; you can redistribute it and/or
+    modify it under the terms of the GNU Lesser General Public
+    License as published by the Free Software Foundation; either
+    version 2.1 of the License, or (at your option) any later version.
+
+    This library is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+    Lesser General Public License for more details.
+
+    You should have received a copy of the GNU Lesser General Public
+    License along with this library; if not, write to the Free Software
+    Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301
+    USA
+ */
+
+package org.firedragon91245.spi.vorbis.sampled.convert;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Timespan;
+
+/**
+ * Flight recorder event for a decoder being closed, with the totals of its {@link DecodeMetrics}.
+ */
+@Name("org.firedragon91245.spi.vorbis.StreamClose")
+@Label("Vorbis Stream Close")
+@Category({"Audio", "Vorbis"})
+@Description("A Vorbis decoder was closed")
+final class StreamCloseEvent extends Event {
+    @Label("Compressed Bytes")
+    @DataAmount
+    long bytesRead;
+
+    @Label("Packets")
+    long packets;
+
+    @Label("Failed Packets")
+    long failedPackets;
+
+    @Label("Frames")
+    long frames;
+
+    @Label("Synthesis Time")
+    @Timespan
+    long synthesisTime;
+
+    @Label("Conversion Time")
+    @Timespan
+    long conversionTime;
+
+    @Label("I/O Time")
+    @Timespan
+    long ioTime;
+
+    @Label("Buffer Full Stalls")
+    long bufferFullStalls;
+}
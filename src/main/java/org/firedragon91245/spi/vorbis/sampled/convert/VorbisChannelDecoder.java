@@ -0,0 +1,151 @@
+/*
+	vorbisspi-repackaged - a modernized and modularized version of vorbisspi by javazoom
+    Copyright (C) 2024 FireDragon91245
+
+    This library is free software; you can redistribute it and/or
+    modify it under the terms of the GNU Lesser General Public
+    License as published by the Free Software Foundation; either
+    version 2.1 of the License, or (at your option) any later version.
+
+    This library is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+    Lesser General Public License for more details.
+
+    You should have received a copy of the GNU Lesser General Public
+    License along with this library; if not, write to the Free Software
+    Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301
+    USA
+ */
+
+package org.firedragon91245.spi.vorbis.sampled.convert;
+
+import javax.sound.sampled.AudioFormat;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.ReadableByteChannel;
+
+/**
+ * Decodes Ogg Vorbis from a channel or an in-memory buffer into caller supplied, possibly direct, ByteBuffers.
+ * <p>
+ * Compressed data goes straight from the source into the Ogg sync buffer, and samples are converted straight
+ * from the jorbis output into the destination buffer, so there is no intermediate <code>byte[]</code> on
+ * either side. The decoder is itself a {@link ReadableByteChannel} of interleaved PCM in the output format.
+ * <pre>{@code
+ * try (VorbisChannelDecoder decoder = new VorbisChannelDecoder(FileChannel.open(path), format)) {
+ *     ByteBuffer pcm = ByteBuffer.allocateDirect(1 << 16);
+ *     while (decoder.read(pcm) >= 0) {
+ *         pcm.flip();
+ *         out.write(pcm);
+ *         pcm.compact();
+ *     }
+ * }
+ * }</pre>
+ * A non-blocking source channel is supported: {@link #read(ByteBuffer)} then returns 0 when no compressed
+ * data is ready.
+ * <p>
+ * This class is not thread safe.
+ */
+public final class VorbisChannelDecoder implements ReadableByteChannel {
+    private final ReadableByteChannel channel;
+    private final ByteBuffer buffer;
+    private final AudioFormat format;
+    private final VorbisDecoder decoder;
+    private final BufferSizing sizing;
+    private boolean open = true;
+    private boolean checked = false;
+
+    /**
+     * Decodes from a channel.
+     *
+     * @param outputFormat 16/24 bit signed or 32 bit float PCM with the sample rate and channels of the stream
+     * @throws IllegalArgumentException if the output format is not supported
+     */
+    public VorbisChannelDecoder(ReadableByteChannel source, AudioFormat outputFormat) {
+        this(source, null, outputFormat);
+    }
+
+    /**
+     * Decodes the remaining bytes of a buffer, a whole stream in memory. The position of the buffer is
+     * advanced as the data is decoded.
+     *
+     * @param outputFormat see {@link #VorbisChannelDecoder(ReadableByteChannel, AudioFormat)}
+     */
+    public VorbisChannelDecoder(ByteBuffer source, AudioFormat outputFormat) {
+        this(null, source, outputFormat);
+    }
+
+    private VorbisChannelDecoder(ReadableByteChannel channel, ByteBuffer buffer, AudioFormat outputFormat) {
+        this.channel = channel;
+        this.buffer = buffer;
+        this.format = outputFormat;
+        this.decoder = new VorbisDecoder(outputFormat);
+        this.sizing = new BufferSizing(outputFormat);
+    }
+
+    /**
+     * The PCM format of the decoded data.
+     */
+    public AudioFormat getFormat() {
+        return format;
+    }
+
+    /**
+     * Decodes whole frames into the remaining space of dst.
+     *
+     * @return the number of bytes written, 0 if dst has no room for a frame or a non-blocking source had no
+     * data ready, or -1 at the end of the stream
+     * @throws IOException if the source is not a Vorbis stream in a sample rate and channels matching the
+     *                     output format
+     */
+    public int read(ByteBuffer dst) throws IOException {
+        if (!open) throw new ClosedChannelException();
+        int written = 0;
+        while (true) {
+            written += decoder.decode(dst);
+            if (!checked && decoder.headersComplete()) {
+                decoder.checkFormat();
+                checked = true;
+            }
+            if (dst.remaining() < decoder.frameSize() || decoder.isFinished()) break;
+            if (fill() == 0) break;
+        }
+        sizing.update(decoder.metrics().bytesRead(), decoder.metrics().samples());
+        if (decoder.headersTruncated()) {
+            throw new IOException("End of file before finding all Vorbis headers!");
+        }
+        return written == 0 && decoder.isFinished() ? -1 : written;
+    }
+
+    /**
+     * Hands the next compressed data to the decoder.
+     *
+     * @return the number of bytes, 0 if a non-blocking channel had none ready, or -1 at the end of the input
+     */
+    private int fill() throws IOException {
+        if (channel != null) {
+            return decoder.fill(channel, sizing.readSize());
+        }
+        int bytes = decoder.fill(buffer, sizing.readSize());
+        if (bytes == 0) {
+            decoder.endOfInput();
+            return -1;
+        }
+        return bytes;
+    }
+
+    public boolean isOpen() {
+        return open;
+    }
+
+    /**
+     * Releases the decoder and closes the source channel.
+     */
+    public void close() throws IOException {
+        if (!open) return;
+        open = false;
+        decoder.clear();
+        if (channel != null) channel.close();
+    }
+}
@@ -0,0 +1,366 @@
+/*
+	vorbisspi-repackaged - a modernized and modularized version of vorbisspi by javazoom
+    Copyright (C) 2024 FireDragon91245
+
+    This library is free software; you can redistribute it and/or
+    modify it under the terms of the GNU Lesser General Public
+    License as published by the Free Software Foundation; either
+    version 2.1 of the License, or (at your option) any later version.
+
+    This library is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+    Lesser General Public License for more details.
+
+    You should have received a copy of the GNU Lesser General Public
+    License along with this library; if not, write to the Free Software
+    Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301
+    USA
+ */
+
+package org.firedragon91245.spi.vorbis.sampled.convert;
+
+import org.firedragon91245.spi.PropertiesContainer;
+import org.tritonus.share.TDebug;
+
+import javax.sound.sampled.AudioFormat;
+import javax.sound.sampled.AudioInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.PriorityBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Decodes many streams on a small, fixed pool of worker threads.
+ * <p>
+ * Each stream opened with {@link #open(AudioInputStream, AudioFormat)} gets a {@link SpscRingBuffer} of a fixed
+ * length of audio, its high watermark. Workers decode ahead into it in turns of at most
+ * {@value #TURN_FRAMES} frames until it is full; once the reader has drained it below half, the stream is queued
+ * again. The queue is ordered by the audio each stream had buffered when it was queued, so the streams closest
+ * to an underrun are decoded first. Readers never decode themselves, they wait on the ring buffer, spinning
+ * briefly and then parking.
+ * <pre>{@code
+ * try (VorbisDecodeScheduler scheduler = new VorbisDecodeScheduler(16, 500)) {
+ *     AudioInputStream pcm = scheduler.open(reader.getAudioInputStream(file), targetFormat);
+ *     ...
+ * }
+ * }</pre>
+ * The compressed input is read by the workers; it should not block for long, as a blocked worker serves no
+ * other stream meanwhile. For network input see {@link VorbisPushDecoder}.
+ */
+public final class VorbisDecodeScheduler implements AutoCloseable {
+    /**
+     * Most frames decoded for one stream before the worker moves on to the next.
+     */
+    public static final int TURN_FRAMES = 4096;
+    private static final int DEFAULT_BUFFER_MILLIS = 500;
+    private final ExecutorService workers;
+    private final int bufferMillis;
+    private final PriorityBlockingQueue<Turn> queue = new PriorityBlockingQueue<>();
+    private final Set<ScheduledStream> streams = ConcurrentHashMap.newKeySet();
+    private final AtomicLong sequence = new AtomicLong();
+    private final LongAdder underruns = new LongAdder();
+    private volatile boolean closed = false;
+
+    /**
+     * Constructor, with a worker per processor and 500 ms of audio buffered per stream.
+     */
+    public VorbisDecodeScheduler() {
+        this(Runtime.getRuntime().availableProcessors(), DEFAULT_BUFFER_MILLIS);
+    }
+
+    /**
+     * Constructor.
+     *
+     * @param threads      number of worker threads
+     * @param bufferMillis audio decoded ahead for each stream, in milliseconds
+     */
+    public VorbisDecodeScheduler(int threads, int bufferMillis) {
+        if (threads < 1 || bufferMillis < 1) throw new IllegalArgumentException("threads and bufferMillis must be positive");
+        this.bufferMillis = bufferMillis;
+        AtomicInteger count = new AtomicInteger();
+        this.workers = Executors.newFixedThreadPool(threads, r -> {
+            Thread thread = new Thread(r, "vorbis-decode-" + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        for (int i = 0; i < threads; i++) {
+            workers.execute(this::work);
+        }
+    }
+
+    /**
+     * Counters of the scheduler.
+     *
+     * @param streams   streams open
+     * @param queued    streams waiting for a worker
+     * @param underruns reads that found no decoded audio while the stream was still running
+     */
+    public record Statistics(int streams, int queued, long underruns) {
+    }
+
+    public Statistics statistics() {
+        return new Statistics(streams.size(), queue.size(), underruns.sum());
+    }
+
+    /**
+     * Starts decoding a stream on the workers.
+     *
+     * @param encoded      stream returned by {@link org.firedragon91245.spi.vorbis.sampled.file.VorbisAudioFileReader}
+     * @param targetFormat PCM format with the sample rate and channels of the stream, see
+     *                     {@link VorbisFormatConversionProvider#BUFFERING_PROPERTY} for the read sizes
+     * @return the decoded stream, closing it releases the encoded stream
+     */
+    public AudioInputStream open(AudioInputStream encoded, AudioFormat targetFormat) {
+        if (closed) throw new IllegalStateException("scheduler closed");
+        AudioFormat source = encoded.getFormat();
+        if (source.getSampleRate() != targetFormat.getSampleRate() || source.getChannels() != targetFormat.getChannels()) {
+            throw new IllegalArgumentException("conversion not supported");
+        }
+        ScheduledStream stream = new ScheduledStream(encoded, targetFormat);
+        streams.add(stream);
+        stream.schedule();
+        return stream;
+    }
+
+    private void work() {
+        byte[] scratch = new byte[0];
+        while (!closed) {
+            ScheduledStream stream;
+            try {
+                stream = queue.take().stream;
+            } catch (InterruptedException e) {
+                continue;
+            }
+            // a worker must not die while the scheduler is open, whatever a stream throws
+            try {
+                int turn = TURN_FRAMES * stream.decoder.frameSize();
+                if (scratch.length < turn) scratch = new byte[turn];
+                if (stream.decodeTurn(scratch)) {
+                    queue.add(new Turn(stream, stream.bufferedMicros(), sequence.getAndIncrement()));
+                } else {
+                    stream.queued.set(false);
+                    if (stream.cancelled) {
+                        // closed while this turn ran, release it unless close() already did
+                        if (stream.queued.compareAndSet(false, true)) stream.release();
+                    } else if (stream.needsDecode()) {
+                        // the reader may have drained the ring while this turn ran
+                        stream.schedule();
+                    }
+                }
+            } catch (RuntimeException e) {
+                if (TDebug.TraceAudioConverter) TDebug.out("VorbisDecodeScheduler: " + e);
+                stream.fail(new IOException(e));
+                stream.release();
+            }
+        }
+        if (TDebug.TraceAudioConverter) TDebug.out("VorbisDecodeScheduler: worker stopped");
+    }
+
+    /**
+     * Stops the workers, waiting for the turns in progress. Streams still open end with an IOException and
+     * their encoded streams are released.
+     */
+    public void close() {
+        closed = true;
+        workers.shutdownNow();
+        for (ScheduledStream stream : streams) {
+            stream.fail(new IOException("Scheduler closed."));
+        }
+        boolean stopped = false;
+        try {
+            stopped = workers.awaitTermination(Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        queue.clear();
+        for (ScheduledStream stream : streams) {
+            // once the workers are gone nobody holds a stream; otherwise only those no worker has
+            if (stopped || stream.queued.compareAndSet(false, true)) stream.release();
+        }
+    }
+
+    /**
+     * Queue entry, ordered by the audio buffered when it was queued, then first come first served.
+     */
+    private record Turn(ScheduledStream stream, long bufferedMicros, long sequence) implements Comparable<Turn> {
+        public int compareTo(Turn other) {
+            int c = Long.compare(bufferedMicros, other.bufferedMicros);
+            return c != 0 ? c : Long.compare(sequence, other.sequence);
+        }
+    }
+
+    /**
+     * A stream decoded by the workers. At most one worker holds it at a time: it is in the queue or being
+     * decoded only while queued is true.
+     */
+    private final class ScheduledStream extends AudioInputStream implements PropertiesContainer {
+        private final InputStream encoded;
+        private final VorbisDecoder decoder;
+        private final BufferSizing sizing;
+        private final SpscRingBuffer ring;
+        private final int lowWatermark;
+        private final AtomicBoolean queued = new AtomicBoolean();
+        private final AtomicBoolean released = new AtomicBoolean();
+        private final Map<String, Object> properties = new HashMap<>();
+        private volatile boolean cancelled = false;
+        private volatile IOException error = null;
+        private boolean started = false;
+
+        ScheduledStream(AudioInputStream encoded, AudioFormat targetFormat) {
+            super(new ByteArrayInputStream(new byte[0]), targetFormat, VorbisDecoder.frameLength(encoded));
+            this.encoded = encoded;
+            this.decoder = new VorbisDecoder(targetFormat);
+            this.sizing = new BufferSizing(targetFormat);
+            int frameSize = decoder.frameSize();
+            long frames = Math.max(TURN_FRAMES, (long) (targetFormat.getSampleRate() * bufferMillis / 1000));
+            this.ring = new SpscRingBuffer((int) Math.min(frames * frameSize, 1 << 30), false);
+            this.lowWatermark = ring.capacity() / 2;
+        }
+
+        void schedule() {
+            if (!cancelled && queued.compareAndSet(false, true)) {
+                queue.add(new Turn(this, bufferedMicros(), sequence.getAndIncrement()));
+            }
+        }
+
+        boolean needsDecode() {
+            return !cancelled && !ring.isClosed() && ring.availableRead() < lowWatermark;
+        }
+
+        long bufferedMicros() {
+            return (long) (ring.availableRead() / frameSize * 1e6 / format.getSampleRate());
+        }
+
+        /**
+         * Decodes up to one turn into the ring. Worker only.
+         *
+         * @return true if the ring has room left and the stream should be queued again
+         */
+        boolean decodeTurn(byte[] scratch) {
+            if (cancelled) {
+                release();
+                return false;
+            }
+            int room = ring.availableWrite();
+            int length = Math.min(room - room % frameSize, TURN_FRAMES * frameSize);
+            if (length < frameSize) return false;
+            try {
+                int bytes = decoder.read(encoded, sizing.readSize(), scratch, 0, length);
+                sizing.update(decoder.metrics().bytesRead(), decoder.metrics().samples());
+                if (bytes < 0) {
+                    ring.close();
+                    release();
+                    return false;
+                }
+                ring.write(scratch, 0, bytes);
+            } catch (IOException e) {
+                if (TDebug.TraceAudioConverter) TDebug.out("VorbisDecodeScheduler: " + e.getMessage());
+                fail(e);
+                release();
+                return false;
+            } catch (RuntimeException e) {
+                // jorbis reports corrupt data with unchecked exceptions
+                if (TDebug.TraceAudioConverter) TDebug.out("VorbisDecodeScheduler: " + e);
+                fail(new IOException(e));
+                release();
+                return false;
+            }
+            return ring.availableWrite() >= frameSize;
+        }
+
+        void fail(IOException e) {
+            error = e;
+            ring.close();
+        }
+
+        private void release() {
+            if (!released.compareAndSet(false, true)) return;
+            decoder.clear();
+            streams.remove(this);
+            try {
+                encoded.close();
+            } catch (IOException e) {
+                if (TDebug.TraceAudioConverter) TDebug.out(e.getMessage());
+            }
+        }
+
+        /**
+         * Reads the decoded frames there are, waiting for the workers only if there are none.
+         *
+         * @return the number of bytes read, or -1 at the end of the stream
+         * @throws IOException if decoding failed
+         */
+        public int read(byte[] b, int off, int len) throws IOException {
+            len -= len % frameSize;
+            if (len == 0) return 0;
+            if (ring.availableRead() < lowWatermark) schedule();
+            if (ring.availableRead() == 0) {
+                if (started && !ring.isClosed()) underruns.increment();
+                if (!ring.awaitReadable(frameSize)) {
+                    if (error != null) throw new IOException(error.getMessage(), error);
+                    return -1;
+                }
+            }
+            started = true;
+            int bytes = ring.read(b, off, len);
+            if (ring.availableRead() < lowWatermark) schedule();
+            framePos += bytes / frameSize;
+            return bytes;
+        }
+
+        public int read() throws IOException {
+            if (frameSize != 1) throw new IOException("cannot read a single byte if frame size > 1");
+            byte[] b = new byte[1];
+            return read(b, 0, 1) <= 0 ? -1 : b[0] & 0xff;
+        }
+
+        public long skip(long n) throws IOException {
+            long skipped = 0;
+            byte[] buffer = new byte[TURN_FRAMES * frameSize];
+            while (skipped < n) {
+                int bytes = read(buffer, 0, (int) Math.min(buffer.length, n - skipped));
+                if (bytes <= 0) break;
+                skipped += bytes;
+            }
+            return skipped;
+        }
+
+        public int available() {
+            return ring.availableRead();
+        }
+
+        public boolean markSupported() {
+            return false;
+        }
+
+        /**
+         * Return dynamic properties, the <b>ogg.decode.*</b> counters of {@link DecodedVorbisAudioInputStream#properties()}.
+         */
+        public Map<String, Object> properties() {
+            decoder.metrics().putProperties(properties);
+            return properties;
+        }
+
+        /**
+         * Stops decoding and releases the encoded stream.
+         */
+        public void close() {
+            cancelled = true;
+            ring.close();
+            // if no worker holds the stream, release it here
+            if (queued.compareAndSet(false, true)) release();
+        }
+    }
+}
@@ -0,0 +1,675 @@
+/*
+	original author: JavaZOOM, vorbisspi@javazoom.net, http://www.javazoom.net
+
+	vorbisspi-repackaged - a modernized and modularized version of vorbisspi by javazoom
+    Copyright (C) 2024 FireDragon91245
+
+    This library is free software; you can redistribute it and/or
+    modify it under the terms of the GNU Lesser General Public
+    License as published by the Free Software Foundation; either
+    version 2.1 of the License, or (at your option) any later version.
+
+    This library is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+    Lesser General Public License for more details.
+
+    You should have received a copy of the GNU Lesser General Public
+    License along with this library; if not, write to the Free Software
+    Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301
+    USA
+ */
+
+package org.firedragon91245.spi.vorbis.sampled.convert;
+
+import com.jcraft.jogg.Packet;
+import com.jcraft.jogg.Page;
+import com.jcraft.jogg.StreamState;
+import com.jcraft.jogg.SyncState;
+import com.jcraft.jorbis.Block;
+import com.jcraft.jorbis.Comment;
+import com.jcraft.jorbis.DspState;
+import com.jcraft.jorbis.Info;
+import org.firedragon91245.spi.vorbis.sampled.file.OggPage;
+import org.firedragon91245.spi.vorbis.sampled.file.OggSeekIndex;
+import org.firedragon91245.spi.vorbis.sampled.file.PcmOffset;
+import org.firedragon91245.spi.vorbis.sampled.file.SeekableChannelInputStream;
+import org.tritonus.share.TDebug;
+
+import javax.sound.sampled.AudioFormat;
+import javax.sound.sampled.AudioInputStream;
+import javax.sound.sampled.AudioSystem;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.SeekableByteChannel;
+
+/**
+ * The jOgg/jOrbis decoding state shared by the Vorbis audio input streams.
+ * <p>
+ * Compressed data is handed to the decoder with {@link #fill(InputStream, int)} and PCM is taken out with
+ * {@link #decode(byte[], int, int)}, which converts straight into the given array. Samples that do not fit
+ * stay in the jorbis {@link DspState} until the next call, so no intermediate PCM buffer is needed.
+ * <p>
+ * Chained streams, logical streams following each other as in concatenated files or internet radio, are
+ * decoded without a gap: when a new stream begins its headers are read in-line and decoding continues with a
+ * new {@link DspState}. A stream whose sample rate or channels differ from the output format ends the output.
+ * <p>
+ * This class is not thread safe.
+ */
+final class VorbisDecoder {
+    private final SyncState oggSyncState_ = new SyncState();
+    private final StreamState oggStreamState_ = new StreamState();
+    private final Page oggPage_ = new Page();
+    private final Packet oggPacket_ = new Packet();
+    private Info vorbisInfo = new Info();
+    private final Comment vorbisComment = new Comment();
+    private DspState vorbisDspState = null;
+    private Block vorbisBlock = null;
+    private final AudioFormat outputFormat;
+    private final PcmConverter pcmConverter;
+    private final DecodeMetrics metrics = new DecodeMetrics();
+    private final int frameSize;
+    private final float[][][] _pcmf = new float[1][][];
+    private int[] _index = null;
+    private boolean streamInitialized = false;
+    private int headerPackets = 0;
+    private boolean endOfStream = false;
+    private boolean endOfInput = false;
+    private boolean finished = false;
+    private long bytesRead = 0;
+    private int serialNumber = 0;
+    // number of chained logical streams started after the first
+    private int link = 0;
+    // true from the end of a logical stream until the next one begins
+    private boolean linkEnded = false;
+    // granule position of the last packet decoded, -1 if it had none
+    private long packetGranule = -1;
+    // byte offset of the first audio page, found on the first seek
+    private long dataStart = -1;
+    // granule position of the first sample, found with dataStart
+    private long pcmOffset = -1;
+    // page searches of seek, created by the first one
+    private OggPage.Finder pageFinder = null;
+
+    /**
+     * Constructor.
+     *
+     * @param outputFormat PCM format the samples are converted to
+     */
+    VorbisDecoder(AudioFormat outputFormat) {
+        this.outputFormat = outputFormat;
+        this.pcmConverter = new PcmConverter(outputFormat);
+        this.frameSize = pcmConverter.frameSize();
+        oggSyncState_.init();
+    }
+
+    /**
+     * Length in sample frames of the stream decoded from bitStream, from the <b>ogg.length.frames</b>
+     * property of its format.
+     *
+     * @return the length, or {@link AudioSystem#NOT_SPECIFIED} if it is not known
+     */
+    static long frameLength(AudioInputStream bitStream) {
+        Object frames = bitStream.getFormat().getProperty("ogg.length.frames");
+        return frames instanceof Long ? (Long) frames : AudioSystem.NOT_SPECIFIED;
+    }
+
+    /**
+     * Size of one output frame in bytes.
+     */
+    int frameSize() {
+        return frameSize;
+    }
+
+    /**
+     * Number of compressed bytes handed to the decoder so far.
+     */
+    long bytesRead() {
+        return bytesRead;
+    }
+
+    /**
+     * Counters of this decoder.
+     */
+    DecodeMetrics metrics() {
+        return metrics;
+    }
+
+    /**
+     * Serial number of the logical stream being decoded.
+     */
+    int serialNumber() {
+        return serialNumber;
+    }
+
+    /**
+     * Index of the logical stream being decoded in a chained stream, 0 for the first.
+     */
+    int link() {
+        return link;
+    }
+
+    /**
+     * Vorbis stream info, complete once {@link #headersComplete()} returns true.
+     */
+    Info info() {
+        return vorbisInfo;
+    }
+
+    /**
+     * Vorbis comments, complete once {@link #headersComplete()} returns true.
+     */
+    Comment comment() {
+        return vorbisComment;
+    }
+
+    /**
+     * Checks that the stream, once its headers are complete, has the sample rate and channels of the output format.
+     *
+     * @throws IOException if it does not
+     */
+    void checkFormat() throws IOException {
+        if (vorbisInfo.rate != (int) outputFormat.getSampleRate() || vorbisInfo.channels != outputFormat.getChannels()) {
+            if (TDebug.TraceAudioConverter) TDebug.out("Stream is " + vorbisInfo.rate + " Hz, " + vorbisInfo.channels
+                    + " channels, not " + outputFormat);
+            throw new IOException("conversion not supported");
+        }
+    }
+
+    /**
+     * @return true once the three Vorbis header packets have been read
+     */
+    boolean headersComplete() {
+        return headerPackets == 3;
+    }
+
+    /**
+     * @return true if the input ended within the headers of a logical stream, rather than after a whole one
+     */
+    boolean headersTruncated() {
+        return finished && !headersComplete() && !linkEnded;
+    }
+
+    /**
+     * @return true if the input ended after the last page, or a chained stream cannot be decoded to the output format
+     */
+    boolean isFinished() {
+        return finished;
+    }
+
+    /**
+     * Reads up to size bytes of compressed data from the stream straight into the Ogg sync buffer.
+     *
+     * @return the number of bytes read, or -1 at the end of the input
+     */
+    int fill(InputStream in, int size) throws IOException {
+        int index = oggSyncState_.buffer(size);
+        long start = System.nanoTime();
+        int bytes = in.read(oggSyncState_.data, index, size);
+        metrics.read(Math.max(bytes, 0), System.nanoTime() - start);
+        if (bytes == -1) {
+            endOfInput = true;
+            return -1;
+        }
+        oggSyncState_.wrote(bytes);
+        bytesRead += bytes;
+        return bytes;
+    }
+
+    /**
+     * Reads up to size bytes of compressed data from the channel straight into the Ogg sync buffer.
+     *
+     * @return the number of bytes read, 0 if a non-blocking channel has none ready, or -1 at the end of the input
+     */
+    int fill(ReadableByteChannel in, int size) throws IOException {
+        int index = oggSyncState_.buffer(size);
+        long start = System.nanoTime();
+        int bytes = in.read(ByteBuffer.wrap(oggSyncState_.data, index, size));
+        metrics.read(Math.max(bytes, 0), System.nanoTime() - start);
+        if (bytes == -1) {
+            endOfInput = true;
+            return -1;
+        }
+        oggSyncState_.wrote(bytes);
+        bytesRead += bytes;
+        return bytes;
+    }
+
+    /**
+     * Copies up to size bytes of compressed data from the buffer into the Ogg sync buffer, advancing its position.
+     *
+     * @return the number of bytes copied
+     */
+    int fill(ByteBuffer in, int size) {
+        int bytes = Math.min(in.remaining(), size);
+        if (bytes == 0) return 0;
+        int index = oggSyncState_.buffer(bytes);
+        in.get(oggSyncState_.data, index, bytes);
+        oggSyncState_.wrote(bytes);
+        bytesRead += bytes;
+        metrics.read(bytes, 0);
+        return bytes;
+    }
+
+    /**
+     * Marks the end of the compressed input.
+     */
+    void endOfInput() {
+        endOfInput = true;
+    }
+
+    /**
+     * Reads from the stream until the three Vorbis headers have been decoded, or the input ends after the
+     * last chained stream, which finishes the decoder.
+     */
+    void readHeaders(InputStream in, int readSize) throws IOException {
+        if (TDebug.TraceAudioConverter) TDebug.out("readHeaders(");
+        while (!headersComplete()) {
+            if (!nextPacket()) {
+                if (!finished && fill(in, readSize) != -1) continue;
+                if (linkEnded) {
+                    // the input ended after the last chained stream
+                    finished = true;
+                    return;
+                }
+                if (TDebug.TraceAudioConverter) TDebug.out("End of file before finding all Vorbis headers!");
+                throw new IOException("End of file before finding all Vorbis headers!");
+            }
+        }
+    }
+
+    /**
+     * Decodes as many whole frames as fit into the buffer from the data handed to the decoder so far.
+     *
+     * @return the number of bytes written, 0 if more input is needed or the stream is {@link #isFinished() finished}
+     */
+    int decode(byte[] b, int off, int len) throws IOException {
+        int written = 0;
+        while (len - written >= frameSize) {
+            if (vorbisDspState != null) {
+                int samples = vorbisDspState.synthesis_pcmout(_pcmf, _index);
+                if (samples > 0) {
+                    int frames = Math.min(samples, (len - written) / frameSize);
+                    long start = System.nanoTime();
+                    written += pcmConverter.convert(_pcmf[0], _index, frames, b, off + written);
+                    metrics.converted(frames, System.nanoTime() - start);
+                    vorbisDspState.synthesis_read(frames);
+                    continue;
+                }
+            }
+            if (!nextPacket()) {
+                break;
+            }
+        }
+        return written;
+    }
+
+    /**
+     * Decodes as many whole frames as fit into the remaining space of the buffer from the data handed to the
+     * decoder so far. The position of the buffer is advanced.
+     *
+     * @return the number of bytes written, 0 if more input is needed or the stream is {@link #isFinished() finished}
+     */
+    int decode(ByteBuffer out) throws IOException {
+        int written = 0;
+        while (out.remaining() >= frameSize) {
+            if (vorbisDspState != null) {
+                int samples = vorbisDspState.synthesis_pcmout(_pcmf, _index);
+                if (samples > 0) {
+                    int frames = Math.min(samples, out.remaining() / frameSize);
+                    long start = System.nanoTime();
+                    written += pcmConverter.convert(_pcmf[0], _index, frames, out);
+                    metrics.converted(frames, System.nanoTime() - start);
+                    vorbisDspState.synthesis_read(frames);
+                    continue;
+                }
+            }
+            if (!nextPacket()) {
+                break;
+            }
+        }
+        return written;
+    }
+
+    /**
+     * Decodes into the buffer, reading compressed data from the stream whenever the decoder runs dry.
+     * Returns early with what has been decoded when more data could only be read by blocking.
+     *
+     * @return the number of bytes written, or -1 at the end of the stream
+     */
+    int read(InputStream in, int readSize, byte[] b, int off, int len) throws IOException {
+        len -= len % frameSize;
+        if (len == 0) return 0;
+        DecodeBatchEvent event = DecodeMetrics.EVENTS ? new DecodeBatchEvent() : null;
+        if (event != null) event.begin();
+        long packets = metrics.packets();
+        long bytes = metrics.bytesRead();
+        if (!headersComplete()) readHeaders(in, readSize);
+        int total = 0;
+        while (true) {
+            total += decode(b, off + total, len - total);
+            if (total == len || finished) break;
+            if (total > 0 && in.available() <= 0) break;
+            fill(in, readSize);
+        }
+        int result = (total == 0 && finished) ? -1 : total;
+        if (event != null) {
+            event.end();
+            if (event.shouldCommit()) {
+                event.requestedFrames = len / frameSize;
+                event.frames = result < 0 ? -1 : result / frameSize;
+                event.packets = metrics.packets() - packets;
+                event.bytesRead = metrics.bytesRead() - bytes;
+                event.serialNumber = serialNumber;
+                event.commit();
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Processes the next header or audio packet.
+     *
+     * @return false if more input is needed, or the stream is finished
+     */
+    private boolean nextPacket() throws IOException {
+        if (finished) return false;
+        while (true) {
+            if (streamInitialized) {
+                int result = oggStreamState_.packetout(oggPacket_);
+                if (result == 1) {
+                    packet();
+                    return true;
+                }
+                if (result == -1) {
+                    // missing or corrupt data at this page position, jogg resyncs on the next call
+                    if (TDebug.TraceAudioConverter) TDebug.out("Corrupt or missing data in packetout bitstream.");
+                    if (DecodeMetrics.EVENTS) CorruptDataEvent.emit("packet", bytesRead, serialNumber);
+                    continue;
+                }
+            }
+            if (endOfStream) {
+                // a chained stream may follow
+                nextLink();
+            }
+            int result = oggSyncState_.pageout(oggPage_);
+            if (result == 1) {
+                metrics.page();
+                page();
+            } else if (result == 0) {
+                // need more data
+                if (endOfInput) finished = true;
+                return false;
+            } else {
+                if (TDebug.TraceAudioConverter) TDebug.out("Corrupt or missing data in bitstream, skipping.");
+                if (DecodeMetrics.EVENTS) CorruptDataEvent.emit("page", bytesRead, serialNumber);
+            }
+        }
+    }
+
+    private void page() throws IOException {
+        if (streamInitialized && headersComplete() && oggPage_.bos() != 0 && oggPage_.serialno() != serialNumber) {
+            // a new stream without the end of the last one, e.g. a cut radio stream
+            nextLink();
+        }
+        if (!streamInitialized) {
+            if (linkEnded) {
+                link++;
+                linkEnded = false;
+            }
+            serialNumber = oggPage_.serialno();
+            oggStreamState_.init(serialNumber);
+            vorbisInfo.init();
+            vorbisComment.init();
+            streamInitialized = true;
+        }
+        if (oggStreamState_.pagein(oggPage_) < 0) {
+            if (!headersComplete()) {
+                // error; stream version mismatch perhaps
+                if (TDebug.TraceAudioConverter) TDebug.out("Error reading first page of Ogg bitstream data.");
+                throw new IOException("Error reading first page of Ogg bitstream data.");
+            }
+            // page of another logical stream
+            return;
+        }
+        if (oggPage_.eos() != 0) {
+            endOfStream = true;
+        }
+    }
+
+    private void packet() throws IOException {
+        if (!headersComplete()) {
+            metrics.headerPacket();
+            if (vorbisInfo.synthesis_headerin(vorbisComment, oggPacket_) < 0) {
+                if (headerPackets == 0) {
+                    // error case; not a vorbis header
+                    if (TDebug.TraceAudioConverter) TDebug.out("This Ogg bitstream does not contain Vorbis audio data.");
+                    throw new IOException("This Ogg bitstream does not contain Vorbis audio data.");
+                }
+                if (TDebug.TraceAudioConverter) TDebug.out("Corrupt secondary header.  Exiting.");
+                throw new IOException("Corrupt secondary header.  Exiting.");
+            }
+            if (++headerPackets == 3) {
+                if (TDebug.TraceAudioConverter) {
+                    byte[][] ptr = vorbisComment.user_comments;
+                    for (byte[] value : ptr) {
+                        if (value == null) {
+                            break;
+                        }
+                        TDebug.out("Comment: " + new String(value, 0, value.length - 1).trim());
+                    }
+                }
+                if (link > 0 && (vorbisInfo.channels != outputFormat.getChannels() || vorbisInfo.rate != (int) outputFormat.getSampleRate())) {
+                    if (TDebug.TraceAudioConverter) TDebug.out("Chained stream " + link + " has " + vorbisInfo.channels
+                            + " channels at " + vorbisInfo.rate + " Hz, not the output format, stopping.");
+                    finished = true;
+                    return;
+                }
+                startSynthesis();
+            }
+            return;
+        }
+        // we have a packet.  Decode it
+        long start = System.nanoTime();
+        boolean decoded = vorbisBlock.synthesis(oggPacket_) == 0; // test for success!
+        if (decoded) vorbisDspState.synthesis_blockin(vorbisBlock);
+        metrics.audioPacket(!decoded, System.nanoTime() - start);
+        if (decoded) {
+            packetGranule = oggPacket_.granulepos;
+        } else {
+            packetGranule = -1;
+            if (TDebug.TraceAudioConverter) TDebug.out("VorbisBlock.synthesis() returned !0, continuing.");
+        }
+    }
+
+    /**
+     * Repositions the decoder so that the next decoded sample is the given frame.
+     * <p>
+     * Bisects on the granule positions of the Ogg pages for the last page ending before the frame,
+     * restarts decoding there and discards the samples up to the frame. The first packet after the
+     * restart only primes the MDCT overlap, its position is taken from the next packet with a granule
+     * position. Should that already lie past the frame, decoding restarts one page earlier.
+     * <p>
+     * If the source has a {@link OggSeekIndex} for this stream, the search starts at the closest
+     * indexed page instead of bisecting.
+     *
+     * In a chained stream, only the first logical stream can be seeked in. Frames are counted from the first
+     * sample of the stream, which need not be at granule position 0, see {@link PcmOffset}.
+     *
+     * @return the frame the decoder is positioned at, smaller than frame only if the stream ends before it
+     */
+    long seek(SeekableChannelInputStream source, int readSize, long frame) throws IOException {
+        if (link > 0 || linkEnded) {
+            // seeking is within the first stream, read its headers again
+            if (!linkEnded) nextLink();
+            link = 0;
+            linkEnded = false;
+            restartInput(source, 0);
+        }
+        if (!headersComplete()) readHeaders(source, readSize);
+        SeekableByteChannel channel = source.channel();
+        OggSeekIndex index = source.getSeekIndex();
+        if (index != null && index.serialNumber() != serialNumber) index = null;
+        if (pageFinder == null) pageFinder = new OggPage.Finder();
+        if (dataStart < 0) {
+            dataStart = index != null ? index.dataStart() : pageFinder.dataStart(channel, serialNumber);
+            pcmOffset = PcmOffset.of(channel, serialNumber, dataStart, vorbisInfo);
+        }
+        // searched in granule positions, frame 0 is at the granule position of the first sample
+        long target = Math.max(0, frame) + pcmOffset;
+        long bound = target;
+        while (true) {
+            OggPage page = bound > pcmOffset ? pageBefore(channel, index, bound) : null;
+            long start = page == null ? dataStart : page.offset();
+            if (TDebug.TraceAudioConverter) TDebug.out("seek(" + frame + "): restarting at byte " + start);
+            restart(source, start);
+            long position = skipTo(source, readSize, start == dataStart ? pcmOffset : -1, target);
+            if (position >= 0) return Math.max(0, position - pcmOffset);
+            // started too late for the MDCT overlap, go back one more page
+            bound = page.granulePosition();
+        }
+    }
+
+    /**
+     * Discards decoded samples up to the target granule position.
+     *
+     * @param position granule position of the next decoded sample, -1 if not known yet
+     * @return the granule position reached, or -1 if the first known position was already past the target
+     */
+    private long skipTo(InputStream in, int readSize, long position, long target) throws IOException {
+        while (true) {
+            // the first stream ended, the next one is not seeked in
+            if (link > 0 || linkEnded) return Math.max(position, 0);
+            int samples = vorbisDspState.synthesis_pcmout(_pcmf, _index);
+            if (samples > 0) {
+                if (position >= 0 && position + samples > target) {
+                    vorbisDspState.synthesis_read((int) (target - position));
+                    return target;
+                }
+                vorbisDspState.synthesis_read(samples);
+                if (position >= 0) position += samples;
+                continue;
+            }
+            if (!nextPacket()) {
+                if (finished) return Math.max(position, 0);
+                fill(in, readSize);
+                continue;
+            }
+            if (position < 0 && packetGranule != -1) {
+                // the samples of this packet end at its granule position
+                position = packetGranule - vorbisDspState.synthesis_pcmout(_pcmf, _index);
+                if (position > target) return -1;
+            }
+        }
+    }
+
+    /**
+     * Resets the Ogg and Vorbis decoding state and continues reading at the given byte offset.
+     */
+    private void restart(SeekableChannelInputStream source, long offset) throws IOException {
+        restartInput(source, offset);
+        oggStreamState_.reset();
+        vorbisBlock.clear();
+        vorbisDspState.clear();
+        startSynthesis();
+        endOfStream = false;
+        packetGranule = -1;
+    }
+
+    private void restartInput(SeekableChannelInputStream source, long offset) throws IOException {
+        source.seek(offset);
+        bytesRead = offset;
+        oggSyncState_.reset();
+        endOfInput = false;
+        finished = false;
+    }
+
+    /**
+     * Ends the current logical stream, the next page starts a new one and its headers are read in-line.
+     */
+    private void nextLink() {
+        if (TDebug.TraceAudioConverter) TDebug.out("End of logical stream " + serialNumber + ", continuing with the next one.");
+        oggStreamState_.reset();
+        if (vorbisBlock != null) vorbisBlock.clear();
+        if (vorbisDspState != null) vorbisDspState.clear();
+        vorbisBlock = null;
+        vorbisDspState = null;
+        clearInfo();
+        streamInitialized = false;
+        headerPackets = 0;
+        endOfStream = false;
+        packetGranule = -1;
+        linkEnded = true;
+    }
+
+    /**
+     * Last page of this stream with a granule position before bound, or null if there is none.
+     */
+    private OggPage pageBefore(SeekableByteChannel channel, OggSeekIndex index, long bound) throws IOException {
+        long lo = dataStart;
+        long hi = channel.size();
+        if (index != null) {
+            // the indexed page is before bound, at most a page interval to scan from there
+            lo = index.offsetBefore(bound);
+            hi = lo;
+        }
+        OggPage best = null;
+        while (hi - lo > 2 * OggPage.MAX_PAGE_SIZE) {
+            long mid = lo + (hi - lo) / 2;
+            OggPage page = granulePage(channel, mid, hi);
+            if (page == null || page.granulePosition() >= bound) {
+                hi = mid;
+            } else {
+                best = page;
+                lo = page.end();
+            }
+        }
+        for (OggPage page = granulePage(channel, lo, channel.size());
+             page != null && page.granulePosition() < bound;
+             page = granulePage(channel, page.end(), channel.size())) {
+            best = page;
+        }
+        return best;
+    }
+
+    /**
+     * First page of this stream with a granule position, starting in [from, limit).
+     */
+    private OggPage granulePage(SeekableByteChannel channel, long from, long limit) throws IOException {
+        OggPage page = pageFinder.find(channel, from, limit);
+        while (page != null && (page.serialNumber() != serialNumber || page.granulePosition() == -1)) {
+            page = pageFinder.find(channel, page.end(), limit);
+        }
+        return page;
+    }
+
+    private void startSynthesis() {
+        vorbisDspState = new DspState();
+        vorbisDspState.synthesis_init(vorbisInfo);
+        vorbisBlock = new Block(vorbisDspState);
+        vorbisBlock.init(vorbisDspState);
+        _index = new int[vorbisInfo.channels];
+    }
+
+    /**
+     * Releases the jorbis state.
+     */
+    void clear() {
+        metrics.close();
+        oggStreamState_.clear();
+        if (vorbisBlock != null) vorbisBlock.clear();
+        if (vorbisDspState != null) vorbisDspState.clear();
+        clearInfo();
+        oggSyncState_.clear();
+    }
+
+    /**
+     * Releases the stream info. Info.clear() must not run twice on the same instance, so it is replaced.
+     */
+    private void clearInfo() {
+        vorbisInfo.clear();
+        vorbisInfo = new Info();
+    }
+}
@@ -27,12 +27,36 @@ import org.tritonus.share.sampled.convert.TMatrixFormatConversionProvider;
 
 import javax.sound.sampled.AudioFormat;
 import javax.sound.sampled.AudioInputStream;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.List;
 
 /**
  * ConversionProvider for VORBIS files.
  */
 public class VorbisFormatConversionProvider extends TMatrixFormatConversionProvider {
+    /**
+     * Target format property [Boolean], when true the decoded stream is a {@link DirectDecodedVorbisAudioInputStream}.
+     */
+    public static final String DIRECT_PROPERTY = "vorbis.direct";
+    /**
+     * Target format property [String], how the decoded stream sizes its reads and buffers:
+     * {@value #BUFFERING_ADAPTIVE} (the default), {@value #BUFFERING_LOW_LATENCY} or {@value #BUFFERING_HIGH_THROUGHPUT}.
+     */
+    public static final String BUFFERING_PROPERTY = "vorbis.buffering";
+    /**
+     * Reads sized to the observed bitrate, the default buffer size.
+     */
+    public static final String BUFFERING_ADAPTIVE = "adaptive";
+    /**
+     * Small reads and about 50 ms of buffer, for interactive playback.
+     */
+    public static final String BUFFERING_LOW_LATENCY = "low-latency";
+    /**
+     * Large reads and decode chunks and about 4 s of buffer, for batch decoding.
+     */
+    public static final String BUFFERING_HIGH_THROUGHPUT = "high-throughput";
+
     private static final AudioFormat[] INPUT_FORMATS =
             {
                     new AudioFormat(VorbisEncoding.VORBISENC, 32000.0F, -1, 1, -1, -1, false), // 0
@@ -57,166 +81,18 @@ public class VorbisFormatConversionProvider extends TMatrixFormatConversionProvi
                     new AudioFormat(VorbisEncoding.VORBISENC, 12000.0F, -1, 2, -1, -1, false), // 41
             };
 
-    private static final AudioFormat[] OUTPUT_FORMATS =
-            {
-                    new AudioFormat(8000.0F, 16, 1, true, false), // 0
-                    new AudioFormat(8000.0F, 16, 1, true, true), // 1
-                    new AudioFormat(8000.0F, 16, 2, true, false), // 2
-                    new AudioFormat(8000.0F, 16, 2, true, true), // 3
-                    /*	24 and 32 bit not yet possible
-                                    new AudioFormat(8000.0F, 24, 1, true, false),
-                                    new AudioFormat(8000.0F, 24, 1, true, true),
-                                    new AudioFormat(8000.0F, 24, 2, true, false),
-                                    new AudioFormat(8000.0F, 24, 2, true, true),
-                                    new AudioFormat(8000.0F, 32, 1, true, false),
-                                    new AudioFormat(8000.0F, 32, 1, true, true),
-                                    new AudioFormat(8000.0F, 32, 2, true, false),
-                                    new AudioFormat(8000.0F, 32, 2, true, true),
-                     */
-                    new AudioFormat(11025.0F, 16, 1, true, false), // 4
-                    new AudioFormat(11025.0F, 16, 1, true, true), // 5
-                    new AudioFormat(11025.0F, 16, 2, true, false), // 6
-                    new AudioFormat(11025.0F, 16, 2, true, true), // 7
-                    /*	24 and 32 bit not yet possible
-                                    new AudioFormat(11025.0F, 24, 1, true, false),
-                                    new AudioFormat(11025.0F, 24, 1, true, true),
-                                    new AudioFormat(11025.0F, 24, 2, true, false),
-                                    new AudioFormat(11025.0F, 24, 2, true, true),
-                                    new AudioFormat(11025.0F, 32, 1, true, false),
-                                    new AudioFormat(11025.0F, 32, 1, true, true),
-                                    new AudioFormat(11025.0F, 32, 2, true, false),
-                                    new AudioFormat(11025.0F, 32, 2, true, true),
-                     */
-                    new AudioFormat(12000.0F, 16, 1, true, false), // 8
-                    new AudioFormat(12000.0F, 16, 1, true, true), // 9
-                    new AudioFormat(12000.0F, 16, 2, true, false), // 10
-                    new AudioFormat(12000.0F, 16, 2, true, true), // 11
-                    /*	24 and 32 bit not yet possible
-                                    new AudioFormat(12000.0F, 24, 1, true, false),
-                                    new AudioFormat(12000.0F, 24, 1, true, true),
-                                    new AudioFormat(12000.0F, 24, 2, true, false),
-                                    new AudioFormat(12000.0F, 24, 2, true, true),
-                                    new AudioFormat(12000.0F, 32, 1, true, false),
-                                    new AudioFormat(12000.0F, 32, 1, true, true),
-                                    new AudioFormat(12000.0F, 32, 2, true, false),
-                                    new AudioFormat(12000.0F, 32, 2, true, true),
-                     */
-                    new AudioFormat(16000.0F, 16, 1, true, false), // 12
-                    new AudioFormat(16000.0F, 16, 1, true, true), // 13
-                    new AudioFormat(16000.0F, 16, 2, true, false), // 14
-                    new AudioFormat(16000.0F, 16, 2, true, true), // 15
-                    /*	24 and 32 bit not yet possible
-                                    new AudioFormat(16000.0F, 24, 1, true, false),
-                                    new AudioFormat(16000.0F, 24, 1, true, true),
-                                    new AudioFormat(16000.0F, 24, 2, true, false),
-                                    new AudioFormat(16000.0F, 24, 2, true, true),
-                                    new AudioFormat(16000.0F, 32, 1, true, false),
-                                    new AudioFormat(16000.0F, 32, 1, true, true),
-                                    new AudioFormat(16000.0F, 32, 2, true, false),
-                                    new AudioFormat(16000.0F, 32, 2, true, true),
-                     */
-                    new AudioFormat(22050.0F, 16, 1, true, false), // 16
-                    new AudioFormat(22050.0F, 16, 1, true, true), // 17
-                    new AudioFormat(22050.0F, 16, 2, true, false), // 18
-                    new AudioFormat(22050.0F, 16, 2, true, true), // 19
-                    /*	24 and 32 bit not yet possible
-                                    new AudioFormat(22050.0F, 24, 1, true, false),
-                                    new AudioFormat(22050.0F, 24, 1, true, true),
-                                    new AudioFormat(22050.0F, 24, 2, true, false),
-                                    new AudioFormat(22050.0F, 24, 2, true, true),
-                                    new AudioFormat(22050.0F, 32, 1, true, false),
-                                    new AudioFormat(22050.0F, 32, 1, true, true),
-                                    new AudioFormat(22050.0F, 32, 2, true, false),
-                                    new AudioFormat(22050.0F, 32, 2, true, true),
-                     */
-                    new AudioFormat(24000.0F, 16, 1, true, false), // 20
-                    new AudioFormat(24000.0F, 16, 1, true, true), // 21
-                    new AudioFormat(24000.0F, 16, 2, true, false), // 22
-                    new AudioFormat(24000.0F, 16, 2, true, true), // 23
-                    /*	24 and 32 bit not yet possible
-                                    new AudioFormat(24000.0F, 24, 1, true, false),
-                                    new AudioFormat(24000.0F, 24, 1, true, true),
-                                    new AudioFormat(24000.0F, 24, 2, true, false),
-                                    new AudioFormat(24000.0F, 24, 2, true, true),
-                                    new AudioFormat(24000.0F, 32, 1, true, false),
-                                    new AudioFormat(24000.0F, 32, 1, true, true),
-                                    new AudioFormat(24000.0F, 32, 2, true, false),
-                                    new AudioFormat(24000.0F, 32, 2, true, true),
-                     */
-                    new AudioFormat(32000.0F, 16, 1, true, false), // 24
-                    new AudioFormat(32000.0F, 16, 1, true, true), // 25
-                    new AudioFormat(32000.0F, 16, 2, true, false), // 26
-                    new AudioFormat(32000.0F, 16, 2, true, true), // 27
-                    /*	24 and 32 bit not yet possible
-                                    new AudioFormat(32000.0F, 24, 1, true, false),
-                                    new AudioFormat(32000.0F, 24, 1, true, true),
-                                    new AudioFormat(32000.0F, 24, 2, true, false),
-                                    new AudioFormat(32000.0F, 24, 2, true, true),
-                                    new AudioFormat(32000.0F, 32, 1, true, false),
-                                    new AudioFormat(32000.0F, 32, 1, true, true),
-                                    new AudioFormat(32000.0F, 32, 2, true, false),
-                                    new AudioFormat(32000.0F, 32, 2, true, true),
-                     */
-                    new AudioFormat(44100.0F, 16, 1, true, false), // 28
-                    new AudioFormat(44100.0F, 16, 1, true, true), // 29
-                    new AudioFormat(44100.0F, 16, 2, true, false), // 30
-                    new AudioFormat(44100.0F, 16, 2, true, true), // 31
-                    /*	24 and 32 bit not yet possible
-                                    new AudioFormat(44100.0F, 24, 1, true, false),
-                                    new AudioFormat(44100.0F, 24, 1, true, true),
-                                    new AudioFormat(44100.0F, 24, 2, true, false),
-                                    new AudioFormat(44100.0F, 24, 2, true, true),
-                                    new AudioFormat(44100.0F, 32, 1, true, false),
-                                    new AudioFormat(44100.0F, 32, 1, true, true),
-                                    new AudioFormat(44100.0F, 32, 2, true, false),
-                                    new AudioFormat(44100.0F, 32, 2, true, true),
-                     */
-                    new AudioFormat(48000.0F, 16, 1, true, false), // 32
-                    new AudioFormat(48000.0F, 16, 1, true, true), // 33
-                    new AudioFormat(48000.0F, 16, 2, true, false), // 34
-                    new AudioFormat(48000.0F, 16, 2, true, true), // 35
-                    /*	24 and 32 bit not yet possible
-                                    new AudioFormat(48000.0F, 24, 1, true, false),
-                                    new AudioFormat(48000.0F, 24, 1, true, true),
-                                    new AudioFormat(48000.0F, 24, 2, true, false),
-                                    new AudioFormat(48000.0F, 24, 2, true, true),
-                                    new AudioFormat(48000.0F, 32, 1, true, false),
-                                    new AudioFormat(48000.0F, 32, 1, true, true),
-                                    new AudioFormat(48000.0F, 32, 2, true, false),
-                                    new AudioFormat(48000.0F, 32, 2, true, true),
-                     */
-            };
-
-    private static final boolean t = true;
-    private static final boolean f = false;
-
     /*
-     *	One row for each source format.
+     *	For each sample rate: 16 bit signed, 24 bit signed and 32 bit float,
+     *	each mono/stereo in little and big endian.
      */
-    private static final boolean[][] CONVERSIONS =
-            {
-                    {f, f, f, f, f, f, f, f, f, f, f, f, f, f, f, f, f, f, f, f, f, f, f, f, t, t, f, f, f, f, f, f, f, f, f, f},    // 0
-                    {f, f, f, f, f, f, f, f, f, f, f, f, f, f, f, f, f, f, f, f, f, f, f, f, f, f, t, t, f, f, f, f, f, f, f, f},    // 1
-                    {f, f, f, f, f, f, f, f, f, f, f, f, f, f, f, f, f, f, f, f, f, f, f, f, f, f, f, f, t, t, f, f, f, f, f, f},    // 2
-                    {f, f, f, f, f, f, f, f, f, f, f, f, f, f, f, f, f, f, f, f, f, f, f, f, f, f, f, f, f, f, t, t, f, f, f, f},    // 3
-                    {f, f, f, f, f, f, f, f, f, f, f, f, f, f, f, f, f, f, f, f, f, f, f, f, f, f, f, f, f, f, f, f, t, t, f, f},    // 4
-                    {f, f, f, f, f, f, f, f, f, f, f, f, f, f, f, f, f, f, f, f, f, f, f, f, f, f, f, f, f, f, f, f, f, f, t, t},    // 5
-
-                    {f, f, f, f, f, f, f, f, f, f, f, f, t, t, f, f, f, f, f, f, f, f, f, f, f, f, f, f, f, f, f, f, f, f, f, f},    // 18
-                    {f, f, f, f, f, f, f, f, f, f, f, f, f, f, t, t, f, f, f, f, f, f, f, f, f, f, f, f, f, f, f, f, f, f, f, f},    // 19
-                    {f, f, f, f, f, f, f, f, f, f, f, f, f, f, f, f, t, t, f, f, f, f, f, f, f, f, f, f, f, f, f, f, f, f, f, f},    // 20
-                    {f, f, f, f, f, f, f, f, f, f, f, f, f, f, f, f, f, f, t, t, f, f, f, f, f, f, f, f, f, f, f, f, f, f, f, f},    // 21
-                    {f, f, f, f, f, f, f, f, f, f, f, f, f, f, f, f, f, f, f, f, t, t, f, f, f, f, f, f, f, f, f, f, f, f, f, f},    // 22
-                    {f, f, f, f, f, f, f, f, f, f, f, f, f, f, f, f, f, f, f, f, f, f, t, t, f, f, f, f, f, f, f, f, f, f, f, f},    // 23
-
-                    {t, t, f, f, f, f, f, f, f, f, f, f, f, f, f, f, f, f, f, f, f, f, f, f, f, f, f, f, f, f, f, f, f, f, f, f},    // 36
-                    {f, f, t, t, f, f, f, f, f, f, f, f, f, f, f, f, f, f, f, f, f, f, f, f, f, f, f, f, f, f, f, f, f, f, f, f},    // 37
-                    {f, f, f, f, t, t, f, f, f, f, f, f, f, f, f, f, f, f, f, f, f, f, f, f, f, f, f, f, f, f, f, f, f, f, f, f},    // 38
-                    {f, f, f, f, f, f, t, t, f, f, f, f, f, f, f, f, f, f, f, f, f, f, f, f, f, f, f, f, f, f, f, f, f, f, f, f},    // 39
-                    {f, f, f, f, f, f, f, f, t, t, f, f, f, f, f, f, f, f, f, f, f, f, f, f, f, f, f, f, f, f, f, f, f, f, f, f},    // 40
-                    {f, f, f, f, f, f, f, f, f, f, t, t, f, f, f, f, f, f, f, f, f, f, f, f, f, f, f, f, f, f, f, f, f, f, f, f},    // 41
+    private static final AudioFormat[] OUTPUT_FORMATS = createOutputFormats(
+            8000.0F, 11025.0F, 12000.0F, 16000.0F, 22050.0F, 24000.0F, 32000.0F, 44100.0F, 48000.0F);
 
-            };
+    /*
+     *	One row for each source format, conversion is possible to every
+     *	output format with the same sample rate and channel count.
+     */
+    private static final boolean[][] CONVERSIONS = createConversions(INPUT_FORMATS, OUTPUT_FORMATS);
 
     /**
      * Constructor.
@@ -227,12 +103,49 @@ public class VorbisFormatConversionProvider extends TMatrixFormatConversionProvi
 
     /**
      * Returns converted AudioInputStream.
+     * <p>
+     * Target format properties:
+     * <ul>
+     * <li><b>vorbis.direct</b> [Boolean], decode synchronously into the reader's buffer, see {@link DirectDecodedVorbisAudioInputStream}.
+     * <li><b>vorbis.buffering</b> [String], read and buffer sizing, see {@link #BUFFERING_PROPERTY}.
+     * </ul>
      */
     public AudioInputStream getAudioInputStream(AudioFormat targetFormat, AudioInputStream audioInputStream) {
         if (isConversionSupported(targetFormat, audioInputStream.getFormat())) {
+            if (Boolean.TRUE.equals(targetFormat.getProperty(DIRECT_PROPERTY))) {
+                return new DirectDecodedVorbisAudioInputStream(targetFormat, audioInputStream);
+            }
             return new DecodedVorbisAudioInputStream(targetFormat, audioInputStream);
         } else {
             throw new IllegalArgumentException("conversion not supported");
         }
     }
+
+    private static AudioFormat[] createOutputFormats(float... sampleRates) {
+        List<AudioFormat> formats = new ArrayList<>();
+        for (float sampleRate : sampleRates) {
+            for (int sampleSize : new int[]{16, 24}) {
+                for (int channels = 1; channels <= 2; channels++) {
+                    formats.add(new AudioFormat(sampleRate, sampleSize, channels, true, false));
+                    formats.add(new AudioFormat(sampleRate, sampleSize, channels, true, true));
+                }
+            }
+            for (int channels = 1; channels <= 2; channels++) {
+                formats.add(new AudioFormat(AudioFormat.Encoding.PCM_FLOAT, sampleRate, 32, channels, 4 * channels, sampleRate, false));
+                formats.add(new AudioFormat(AudioFormat.Encoding.PCM_FLOAT, sampleRate, 32, channels, 4 * channels, sampleRate, true));
+            }
+        }
+        return formats.toArray(new AudioFormat[0]);
+    }
+
+    private static boolean[][] createConversions(AudioFormat[] inputFormats, AudioFormat[] outputFormats) {
+        boolean[][] conversions = new boolean[inputFormats.length][outputFormats.length];
+        for (int i = 0; i < inputFormats.length; i++) {
+            for (int o = 0; o < outputFormats.length; o++) {
+                conversions[i][o] = inputFormats[i].getSampleRate() == outputFormats[o].getSampleRate()
+                        && inputFormats[i].getChannels() == outputFormats[o].getChannels();
+            }
+        }
+        return conversions;
+    }
 }
\ No newline at end of file
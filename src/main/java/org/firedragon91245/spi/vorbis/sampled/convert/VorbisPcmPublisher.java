@@ -0,0 +1,221 @@
+/*
+	vorbisspi-repackaged - a modernized and modularized version of vorbisspi by javazoom
+    Copyright (C) 2024 FireDragon91245
+
+    This library is free software; you can redistribute it and/or
+    modify it under the terms of the GNU Lesser General Public
+    License as published by the Free Software Foundation; either
+    version 2.1 of the License, or (at your option) any later version.
+
+    This library is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+    Lesser General Public License for more details.
+
+    You should have received a copy of the GNU Lesser General Public
+    License along with this library; if not, write to the Free Software
+    Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301
+    USA
+ */
+
+package org.firedragon91245.spi.vorbis.sampled.convert;
+
+import org.tritonus.share.TDebug;
+
+import javax.sound.sampled.AudioFormat;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Objects;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Flow;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Publishes the decoded PCM of a Vorbis source as a stream of ByteBuffer chunks, decoding only as far as the
+ * subscriber has requested.
+ * <p>
+ * Every subscriber gets its own decode of the source, opened on the executor once it requests the first chunk.
+ * Each requested chunk is decoded when it is requested, so backpressure is the subscriber's demand: nothing is
+ * buffered ahead and no thread waits for a slow subscriber. Decoding runs on the executor, at most one task per
+ * subscription at a time, which hands the executor back after a few chunks even if more are requested.
+ * <p>
+ * Chunks hold whole frames in the output format; every chunk is a new buffer owned by the subscriber, all
+ * full except possibly the last. The source channel should be blocking, for non-blocking input see
+ * {@link VorbisPushDecoder}.
+ */
+public final class VorbisPcmPublisher implements Flow.Publisher<ByteBuffer> {
+    /**
+     * Default chunk size in bytes.
+     */
+    public static final int DEFAULT_CHUNK_SIZE = 1 << 16;
+    // chunks emitted per executor task before it is resubmitted
+    private static final int BATCH = 16;
+
+    private final Callable<? extends ReadableByteChannel> source;
+    private final AudioFormat format;
+    private final Executor executor;
+    private final int chunkSize;
+    private final boolean direct;
+
+    /**
+     * Constructor.
+     *
+     * @param source       opens the compressed input, once per subscriber
+     * @param outputFormat 16/24 bit signed or 32 bit float PCM with the sample rate and channels of the stream
+     * @param executor     runs the decoding
+     * @param chunkSize    bytes per chunk, rounded down to whole frames
+     * @param direct       true to emit direct buffers
+     */
+    public VorbisPcmPublisher(Callable<? extends ReadableByteChannel> source, AudioFormat outputFormat,
+                              Executor executor, int chunkSize, boolean direct) {
+        this.source = Objects.requireNonNull(source);
+        this.format = Objects.requireNonNull(outputFormat);
+        this.executor = Objects.requireNonNull(executor);
+        int frameSize = new PcmConverter(outputFormat).frameSize();
+        if (chunkSize < frameSize) throw new IllegalArgumentException("chunkSize smaller than a frame");
+        this.chunkSize = chunkSize - chunkSize % frameSize;
+        this.direct = direct;
+    }
+
+    /**
+     * Publisher of a file, in heap chunks of {@link #DEFAULT_CHUNK_SIZE} bytes.
+     */
+    public static VorbisPcmPublisher forFile(Path file, AudioFormat outputFormat, Executor executor) {
+        return new VorbisPcmPublisher(() -> FileChannel.open(file, StandardOpenOption.READ), outputFormat,
+                executor, DEFAULT_CHUNK_SIZE, false);
+    }
+
+    public AudioFormat getFormat() {
+        return format;
+    }
+
+    public void subscribe(Flow.Subscriber<? super ByteBuffer> subscriber) {
+        Objects.requireNonNull(subscriber);
+        PcmSubscription subscription = new PcmSubscription(subscriber);
+        subscriber.onSubscribe(subscription);
+    }
+
+    /**
+     * Decoding state of one subscriber. The wip counter makes sure only one task runs at a time and that
+     * requests and cancellation arriving meanwhile are seen by it.
+     */
+    private final class PcmSubscription implements Flow.Subscription, Runnable {
+        private final Flow.Subscriber<? super ByteBuffer> subscriber;
+        private final AtomicLong demand = new AtomicLong();
+        private final AtomicInteger wip = new AtomicInteger();
+        private volatile boolean cancelled = false;
+        private volatile Throwable invalidRequest = null;
+        // only touched by the running task
+        private VorbisChannelDecoder decoder = null;
+        private boolean done = false;
+
+        PcmSubscription(Flow.Subscriber<? super ByteBuffer> subscriber) {
+            this.subscriber = subscriber;
+        }
+
+        public void request(long n) {
+            if (n <= 0) {
+                invalidRequest = new IllegalArgumentException("non-positive request: " + n);
+            } else {
+                demand.getAndAccumulate(n, (current, add) -> current + add < 0 ? Long.MAX_VALUE : current + add);
+            }
+            schedule();
+        }
+
+        public void cancel() {
+            cancelled = true;
+            schedule();
+        }
+
+        private void schedule() {
+            if (wip.getAndIncrement() == 0) submit();
+        }
+
+        private void submit() {
+            try {
+                executor.execute(this);
+            } catch (RuntimeException e) {
+                // rejected, nothing will run for this subscription any more
+                cancelled = true;
+                if (!done) {
+                    done = true;
+                    subscriber.onError(e);
+                }
+            }
+        }
+
+        public void run() {
+            int missed = wip.get();
+            while (true) {
+                if (!drain()) {
+                    // batch limit reached, let other tasks run; wip stays above 0 meanwhile
+                    submit();
+                    return;
+                }
+                missed = wip.addAndGet(-missed);
+                if (missed == 0) return;
+            }
+        }
+
+        /**
+         * Emits chunks while there is demand.
+         *
+         * @return false if it stopped at the batch limit with demand left
+         */
+        private boolean drain() {
+            if (done) return true;
+            if (cancelled || invalidRequest != null) {
+                terminate(cancelled ? null : invalidRequest);
+                return true;
+            }
+            try {
+                if (decoder == null) decoder = new VorbisChannelDecoder(source.call(), format);
+                for (int emitted = 0; demand.get() > 0; emitted++) {
+                    if (emitted == BATCH) return false;
+                    ByteBuffer chunk = direct ? ByteBuffer.allocateDirect(chunkSize) : ByteBuffer.allocate(chunkSize);
+                    boolean end = false;
+                    while (chunk.hasRemaining()) {
+                        if (decoder.read(chunk) < 0) {
+                            end = true;
+                            break;
+                        }
+                    }
+                    if (chunk.position() > 0) {
+                        demand.decrementAndGet();
+                        subscriber.onNext(chunk.flip());
+                    }
+                    if (end) {
+                        terminate(null);
+                        subscriber.onComplete();
+                        return true;
+                    }
+                    if (cancelled) {
+                        terminate(null);
+                        return true;
+                    }
+                }
+            } catch (Exception e) {
+                if (TDebug.TraceAudioConverter) TDebug.out("VorbisPcmPublisher: " + e);
+                terminate(e);
+            }
+            return true;
+        }
+
+        private void terminate(Throwable error) {
+            done = true;
+            if (decoder != null) {
+                try {
+                    decoder.close();
+                } catch (Exception e) {
+                    if (TDebug.TraceAudioConverter) TDebug.out(e.getMessage());
+                }
+            }
+            if (error != null) subscriber.onError(error);
+        }
+    }
+}
@@ -0,0 +1,156 @@
+/*
+	vorbisspi-repackaged - a modernized and modularized version of vorbisspi by javazoom
+    Copyright (C) 2024 FireDragon91245
+
+    This library is free software; you can redistribute it and/or
+    modify it under the terms of the GNU Lesser General Public
+    License as published by the Free Software Foundation; either
+    version 2.1 of the License, or (at your option) any later version.
+
+    This library is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+    Lesser General Public License for more details.
+
+    You should have received a copy of the GNU Lesser General Public
+    License along with this library; if not, write to the Free Software
+    Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301
+    USA
+ */
+
+package org.firedragon91245.spi.vorbis.sampled.convert;
+
+import javax.sound.sampled.AudioFormat;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+/**
+ * Incremental decoder for non-blocking input: the caller pushes compressed bytes as they arrive and pulls
+ * whatever PCM they complete. No method ever blocks or reads on its own.
+ * <pre>{@code
+ * // on readable
+ * int n = socket.read(in);
+ * if (n < 0) decoder.endOfInput();
+ * decoder.feed(in.flip());
+ * in.clear();
+ * while (decoder.decode(pcm) > 0) {
+ *     // forward pcm
+ * }
+ * }</pre>
+ * The Ogg page and packet state machine advances as far as the data fed so far allows; headers are read
+ * in-line, as are the headers of chained streams. Compressed data is copied into the Ogg sync buffer by
+ * {@link #feed(ByteBuffer)}, which only holds the bytes not decoded yet, so memory stays bounded as long as
+ * the caller decodes between feeds.
+ * <p>
+ * This class is not thread safe; an event loop driving many decoders owns each of them on one thread.
+ */
+public final class VorbisPushDecoder implements AutoCloseable {
+    private final AudioFormat format;
+    private final VorbisDecoder decoder;
+    private boolean checked = false;
+    private boolean closed = false;
+
+    /**
+     * Constructor.
+     *
+     * @param outputFormat 16/24 bit signed or 32 bit float PCM with the sample rate and channels of the stream
+     * @throws IllegalArgumentException if the output format is not supported
+     */
+    public VorbisPushDecoder(AudioFormat outputFormat) {
+        this.format = outputFormat;
+        this.decoder = new VorbisDecoder(outputFormat);
+    }
+
+    /**
+     * The PCM format of the decoded data.
+     */
+    public AudioFormat getFormat() {
+        return format;
+    }
+
+    /**
+     * Hands all remaining bytes of the buffer to the decoder, advancing its position.
+     */
+    public void feed(ByteBuffer compressed) {
+        if (closed) throw new IllegalStateException("decoder closed");
+        decoder.fill(compressed, compressed.remaining());
+    }
+
+    /**
+     * Hands compressed bytes to the decoder.
+     */
+    public void feed(byte[] b, int off, int len) {
+        feed(ByteBuffer.wrap(b, off, len));
+    }
+
+    /**
+     * Signals that no more data will be fed. Decoding then drains what is left.
+     */
+    public void endOfInput() {
+        decoder.endOfInput();
+    }
+
+    /**
+     * Decodes whole frames into the remaining space of the buffer, advancing its position.
+     *
+     * @return the number of bytes written, 0 if more input is needed or pcm has no room for a frame,
+     * or -1 at the end of the stream
+     * @throws IOException if the data is not a Vorbis stream in a sample rate and channels matching the
+     *                     output format
+     */
+    public int decode(ByteBuffer pcm) throws IOException {
+        if (closed) throw new IOException("decoder closed");
+        return result(decoder.decode(pcm));
+    }
+
+    /**
+     * Decodes whole frames into the array.
+     *
+     * @return see {@link #decode(ByteBuffer)}
+     */
+    public int decode(byte[] b, int off, int len) throws IOException {
+        if (closed) throw new IOException("decoder closed");
+        return result(decoder.decode(b, off, len));
+    }
+
+    private int result(int written) throws IOException {
+        if (!checked && decoder.headersComplete()) {
+            decoder.checkFormat();
+            checked = true;
+        }
+        if (decoder.headersTruncated()) {
+            throw new IOException("End of file before finding all Vorbis headers!");
+        }
+        return written == 0 && decoder.isFinished() ? -1 : written;
+    }
+
+    /**
+     * @return true once the Vorbis headers of the current logical stream have been read
+     */
+    public boolean headersComplete() {
+        return decoder.headersComplete();
+    }
+
+    /**
+     * @return true once everything fed before {@link #endOfInput()} has been decoded
+     */
+    public boolean isFinished() {
+        return decoder.isFinished();
+    }
+
+    /**
+     * Number of compressed bytes fed so far.
+     */
+    public long bytesFed() {
+        return decoder.bytesRead();
+    }
+
+    /**
+     * Releases the decoder.
+     */
+    public void close() {
+        if (closed) return;
+        closed = true;
+        decoder.clear();
+    }
+}
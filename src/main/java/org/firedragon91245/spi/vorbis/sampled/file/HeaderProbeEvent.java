@@ -0,0 +1,83 @@
+/*
+	vorbisspi-repackaged - a modernized and modularized version of vorbisspi by javazoom
+    Copyright (C) 2024 FireDragon91245
+
+    This library is free software; you can redistribute it and/or
+    modify it under the terms of the GNU Lesser General Public
+    License as published by the Free Software Foundation; either
+    version 2.1 of the License, or (at your option) any later version.
+
+    This library is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+    Lesser General Public License for more details.
+
+    You should have received a copy of the GNU Lesser General Public
+    License along with this library; if not, write to the Free Software
+    Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301
+    USA
+ */
+
+package org.firedragon91245.spi.vorbis.sampled.file;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * Flight recorder event for reading the headers of a stream in {@link VorbisAudioFileReader}.
+ */
+@Name("org.firedragon91245.spi.vorbis.HeaderProbe")
+@Label("Vorbis Header Probe")
+@Category({"Audio", "Vorbis"})
+@Description("Reading the Ogg Vorbis headers and the length of a stream")
+final class HeaderProbeEvent extends Event {
+    @Label("Supported")
+    boolean supported;
+
+    @Label("Error")
+    String error;
+
+    @Label("Header Bytes")
+    @DataAmount
+    long bytesRead;
+
+    @Label("Serial Number")
+    int serialNumber;
+
+    @Label("Channels")
+    int channels;
+
+    @Label("Sample Rate")
+    int sampleRate;
+
+    @Label("Frame Length")
+    @Description("Length in sample frames, -1 if not known")
+    long frameLength;
+
+    void probed(VorbisHeader header, long frames) {
+        end();
+        if (shouldCommit()) {
+            supported = true;
+            bytesRead = header.headerLength();
+            serialNumber = header.serialNumber();
+            channels = header.channels();
+            sampleRate = header.sampleRate();
+            frameLength = frames;
+            commit();
+        }
+    }
+
+    void failed(Exception e) {
+        end();
+        if (shouldCommit()) {
+            supported = false;
+            error = e.getMessage();
+            frameLength = -1;
+            commit();
+        }
+    }
+}
@@ -0,0 +1,274 @@
+/*
+	vorbisspi-repackaged - a modernized and modularized version of vorbisspi by javazoom
+    Copyright (C) 2024 FireDragon91245
+
+    This library is free software; you can redistribute it and/or
+    modify it under the terms of the GNU Lesser General Public
+    License as published by the Free Software Foundation; either
+    version 2.1 of the License, or (at your option) any later version.
+
+    This library is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+    Lesser General Public License for more details.
+
+    You should have received a copy of the GNU Lesser General Public
+    License along with this library; if not, write to the Free Software
+    Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301
+    USA
+ */
+
+package org.firedragon91245.spi.vorbis.sampled.file;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.SeekableByteChannel;
+
+/**
+ * Location and header fields of an Ogg page in a seekable source.
+ *
+ * @param offset          byte offset of the page in the source
+ * @param headerLength    length of the page header including the segment table
+ * @param bodyLength      length of the page body
+ * @param flags           header type flags, see {@link #FLAG_CONTINUED}, {@link #FLAG_BOS}, {@link #FLAG_EOS}
+ * @param granulePosition granule position, -1 if no packet ends on this page
+ * @param serialNumber    bitstream serial number
+ * @param sequenceNumber  page sequence number
+ */
+public record OggPage(long offset, int headerLength, int bodyLength, int flags,
+                      long granulePosition, int serialNumber, int sequenceNumber) {
+    public static final int FLAG_CONTINUED = 0x01;
+    public static final int FLAG_BOS = 0x02;
+    public static final int FLAG_EOS = 0x04;
+    /**
+     * Fixed part of the page header, before the segment table.
+     */
+    public static final int HEADER_SIZE = 27;
+    /**
+     * Largest possible page: full header, 255 segments of 255 bytes.
+     */
+    public static final int MAX_PAGE_SIZE = HEADER_SIZE + 255 + 255 * 255;
+
+    private static final int[] CRC_TABLE = new int[256];
+
+    static {
+        for (int i = 0; i < 256; i++) {
+            int r = i << 24;
+            for (int j = 0; j < 8; j++) {
+                r = (r & 0x80000000) != 0 ? (r << 1) ^ 0x04c11db7 : r << 1;
+            }
+            CRC_TABLE[i] = r;
+        }
+    }
+
+    /**
+     * Byte offset just past the end of this page.
+     */
+    public long end() {
+        return offset + headerLength + bodyLength;
+    }
+
+    public boolean isContinued() {
+        return (flags & FLAG_CONTINUED) != 0;
+    }
+
+    public boolean isBos() {
+        return (flags & FLAG_BOS) != 0;
+    }
+
+    public boolean isEos() {
+        return (flags & FLAG_EOS) != 0;
+    }
+
+    /**
+     * Finds the first valid page starting at or after from and before limit.
+     * Candidates are verified with the page CRC.
+     *
+     * @return the page, or null if there is none in the range
+     * @see Finder#find(SeekableByteChannel, long, long)
+     */
+    public static OggPage find(SeekableByteChannel channel, long from, long limit) throws IOException {
+        return new Finder().find(channel, from, limit);
+    }
+
+    /**
+     * Finds the last valid page of the given stream that has a granule position, searching backwards from limit.
+     *
+     * @param serialNumber serial number of the stream, or null for any stream
+     * @return the page, or null if there is none after from
+     * @see Finder#findLast(SeekableByteChannel, long, long, Integer)
+     */
+    public static OggPage findLast(SeekableByteChannel channel, long from, long limit, Integer serialNumber) throws IOException {
+        return new Finder().findLast(channel, from, limit, serialNumber);
+    }
+
+    /**
+     * Offset of the first audio page of a Vorbis stream, the page after the one on which its third header
+     * packet ends. Header pages on which no packet ends have granule position -1, so the granule position
+     * alone does not tell where the audio starts.
+     *
+     * @param serialNumber serial number of the stream
+     * @return the offset, or the length of the channel if the headers do not end
+     * @see Finder#dataStart(SeekableByteChannel, int)
+     */
+    public static long dataStart(SeekableByteChannel channel, int serialNumber) throws IOException {
+        return new Finder().dataStart(channel, serialNumber);
+    }
+
+    /**
+     * Parses the page header at the start of the buffer, without checking the CRC.
+     *
+     * @param offset byte offset of the page in its source
+     * @return the page, or null if the buffer does not start with a complete page header
+     */
+    public static OggPage parse(ByteBuffer buffer, long offset) {
+        int p = buffer.position();
+        int available = buffer.remaining();
+        if (available < HEADER_SIZE
+                || buffer.get(p) != 'O' || buffer.get(p + 1) != 'g' || buffer.get(p + 2) != 'g' || buffer.get(p + 3) != 'S'
+                || buffer.get(p + 4) != 0) {
+            return null;
+        }
+        int segments = buffer.get(p + 26) & 0xff;
+        if (available < HEADER_SIZE + segments) {
+            return null;
+        }
+        int bodyLength = 0;
+        for (int i = 0; i < segments; i++) {
+            bodyLength += buffer.get(p + HEADER_SIZE + i) & 0xff;
+        }
+        ByteBuffer le = buffer.duplicate().order(ByteOrder.LITTLE_ENDIAN);
+        return new OggPage(offset, HEADER_SIZE + segments, bodyLength, buffer.get(p + 5) & 0xff,
+                le.getLong(p + 6), le.getInt(p + 14), le.getInt(p + 18));
+    }
+
+    /**
+     * Ogg CRC of a whole page, computed as if the checksum field were zero.
+     */
+    static int crc(byte[] page, int off, int len) {
+        int crc = 0;
+        for (int i = 0; i < len; i++) {
+            int b = (i >= 22 && i < 26) ? 0 : page[off + i] & 0xff;
+            crc = (crc << 8) ^ CRC_TABLE[((crc >>> 24) & 0xff) ^ b];
+        }
+        return crc;
+    }
+
+    /**
+     * Page searches reusing their buffers, for callers that search many times, such as a seek bisecting
+     * on the pages of a file. The static methods of OggPage create a new finder per call.
+     * <p>
+     * A finder is not thread safe.
+     */
+    public static final class Finder {
+        private final ByteBuffer window = ByteBuffer.allocate(8192);
+        private final ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE + 255);
+        // whole candidate pages, for the CRC; allocated by the first search that finds a capture pattern
+        private ByteBuffer candidate = null;
+
+        /**
+         * See {@link OggPage#find(SeekableByteChannel, long, long)}.
+         */
+        public OggPage find(SeekableByteChannel channel, long from, long limit) throws IOException {
+            long position = from;
+            while (position < limit) {
+                window.clear();
+                if (readFully(channel, position, window) < 4) {
+                    return null;
+                }
+                byte[] w = window.array();
+                int end = window.position() - 3;
+                for (int i = 0; i < end && position + i < limit; i++) {
+                    if (w[i] == 'O' && w[i + 1] == 'g' && w[i + 2] == 'g' && w[i + 3] == 'S') {
+                        if (candidate == null) candidate = ByteBuffer.allocate(MAX_PAGE_SIZE);
+                        OggPage found = readPage(channel, position + i, candidate);
+                        if (found != null) {
+                            return found;
+                        }
+                    }
+                }
+                position += end;
+            }
+            return null;
+        }
+
+        /**
+         * See {@link OggPage#findLast(SeekableByteChannel, long, long, Integer)}.
+         */
+        public OggPage findLast(SeekableByteChannel channel, long from, long limit, Integer serialNumber) throws IOException {
+            long chunk = 8192;
+            long end = limit;
+            while (end > from) {
+                long start = Math.max(from, end - chunk);
+                OggPage last = null;
+                OggPage page = find(channel, start, end);
+                while (page != null) {
+                    if (page.granulePosition() != -1 && (serialNumber == null || page.serialNumber() == serialNumber)) {
+                        last = page;
+                    }
+                    page = find(channel, page.end(), end);
+                }
+                if (last != null) {
+                    return last;
+                }
+                end = start;
+                chunk = Math.min(chunk * 2, MAX_PAGE_SIZE);
+            }
+            return null;
+        }
+
+        /**
+         * See {@link OggPage#dataStart(SeekableByteChannel, int)}.
+         */
+        public long dataStart(SeekableByteChannel channel, int serialNumber) throws IOException {
+            long length = channel.size();
+            int packets = 0;
+            for (OggPage page = find(channel, 0, length); page != null; page = find(channel, page.end(), length)) {
+                if (page.serialNumber() != serialNumber) continue;
+                header.clear().limit(page.headerLength());
+                readFully(channel, page.offset(), header);
+                // a lacing value below 255 ends a packet
+                for (int i = HEADER_SIZE; i < page.headerLength(); i++) {
+                    if ((header.get(i) & 0xff) < 255 && ++packets == 3) return page.end();
+                }
+            }
+            return length;
+        }
+    }
+
+    /**
+     * Reads and verifies the page at the given offset.
+     */
+    private static OggPage readPage(SeekableByteChannel channel, long offset, ByteBuffer buffer) throws IOException {
+        buffer.clear().limit(HEADER_SIZE);
+        if (readFully(channel, offset, buffer) < HEADER_SIZE) return null;
+        int segments = buffer.get(26) & 0xff;
+        buffer.limit(HEADER_SIZE + segments);
+        if (readFully(channel, offset + HEADER_SIZE, buffer) < segments) return null;
+        buffer.flip();
+        OggPage page = parse(buffer, offset);
+        if (page == null) return null;
+        buffer.position(page.headerLength()).limit(page.headerLength() + page.bodyLength());
+        if (readFully(channel, offset + page.headerLength(), buffer) < page.bodyLength()) return null;
+        int stored = buffer.duplicate().order(ByteOrder.LITTLE_ENDIAN).getInt(22);
+        if (crc(buffer.array(), 0, page.headerLength() + page.bodyLength()) != stored) return null;
+        return page;
+    }
+
+    /**
+     * Positional read until the buffer is full or the end of the channel.
+     *
+     * @return the number of bytes read
+     */
+    static int readFully(SeekableByteChannel channel, long position, ByteBuffer buffer) throws IOException {
+        int total = 0;
+        channel.position(position);
+        while (buffer.hasRemaining()) {
+            int n = channel.read(buffer);
+            if (n < 0) break;
+            total += n;
+        }
+        return total;
+    }
+}
@@ -0,0 +1,340 @@
+/*
+	vorbisspi-repackaged - a modernized and modularized version of vorbisspi by javazoom
+    Copyright (C) 2024 FireDragon91245
+
+    This library is free software; you can redistribute it and/or
+    modify it under the terms of the GNU Lesser General Public
+    License as published by the Free Software Foundation; either
+    version 2.1 of the License, or (at your option) any later version.
+
+    This library is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+    Lesser General Public License for more details.
+
+    You should have received a copy of the GNU Lesser General Public
+    License along with this library; if not, write to the Free Software
+    Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301
+    USA
+ */
+
+package org.firedragon91245.spi.vorbis.sampled.file;
+
+import org.tritonus.share.TDebug;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.SeekableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Seek index of an Ogg Vorbis file: granule position and byte offset of every Nth page.
+ * <p>
+ * With an index a seek only scans the few pages between the closest entry and the target, instead of
+ * bisecting over the whole file. An index is attached to a source with
+ * {@link SeekableChannelInputStream#setSeekIndex(OggSeekIndex)}; {@link VorbisAudioFileReader} does this
+ * for files whose index is in memory or in a sidecar file next to them, see {@link #forFile(Path)}.
+ * <p>
+ * Only the first logical stream of a file is indexed. Instances are immutable.
+ */
+public final class OggSeekIndex {
+    /**
+     * Default number of pages between two index entries.
+     */
+    public static final int DEFAULT_PAGE_INTERVAL = 16;
+    /**
+     * Suffix appended to the file name for the sidecar file.
+     */
+    public static final String SIDECAR_SUFFIX = ".seekidx";
+
+    private static final int MAGIC = 0x56534958; // "VSIX"
+    private static final int VERSION = 1;
+    private static final int CACHE_SIZE = 1024;
+    private static final Map<Key, OggSeekIndex> CACHE = Collections.synchronizedMap(
+            new LinkedHashMap<>(64, 0.75f, true) {
+                protected boolean removeEldestEntry(Map.Entry<Key, OggSeekIndex> eldest) {
+                    return size() > CACHE_SIZE;
+                }
+            });
+
+    private final int serialNumber;
+    private final long dataStart;
+    private final long[] granulePositions;
+    private final long[] offsets;
+
+    private OggSeekIndex(int serialNumber, long dataStart, long[] granulePositions, long[] offsets) {
+        this.serialNumber = serialNumber;
+        this.dataStart = dataStart;
+        this.granulePositions = granulePositions;
+        this.offsets = offsets;
+    }
+
+    /**
+     * Serial number of the indexed stream.
+     */
+    public int serialNumber() {
+        return serialNumber;
+    }
+
+    /**
+     * Byte offset of the first audio page, right after the header pages.
+     */
+    public long dataStart() {
+        return dataStart;
+    }
+
+    /**
+     * Number of entries.
+     */
+    public int size() {
+        return offsets.length;
+    }
+
+    public long granulePosition(int entry) {
+        return granulePositions[entry];
+    }
+
+    public long offset(int entry) {
+        return offsets[entry];
+    }
+
+    /**
+     * Byte offset of the last indexed page with a granule position below the given one,
+     * or {@link #dataStart()} if there is none.
+     */
+    public long offsetBefore(long granulePosition) {
+        int i = Arrays.binarySearch(granulePositions, granulePosition);
+        // the entry before the insertion point, or before the exact match
+        i = (i >= 0 ? i : -i - 1) - 1;
+        return i >= 0 ? offsets[i] : dataStart;
+    }
+
+    /**
+     * Builds the index by walking the page headers of the channel.
+     *
+     * @param pageInterval number of pages with a granule position between two entries
+     */
+    public static OggSeekIndex build(SeekableByteChannel channel, int pageInterval) throws IOException {
+        if (pageInterval < 1) throw new IllegalArgumentException("pageInterval < 1");
+        long length = channel.size();
+        ByteBuffer header = ByteBuffer.allocate(OggPage.HEADER_SIZE + 255);
+        long[] granules = new long[64];
+        long[] offsets = new long[64];
+        int count = 0;
+        int pages = 0;
+        OggPage.Finder finder = new OggPage.Finder();
+        OggPage page = finder.find(channel, 0, length);
+        if (page == null) throw new IOException("Input does not appear to be an Ogg bitstream.");
+        int serialNumber = page.serialNumber();
+        long dataStart = finder.dataStart(channel, serialNumber);
+        while (page != null) {
+            if (page.serialNumber() == serialNumber) {
+                if (page.offset() >= dataStart && page.granulePosition() != -1 && pages++ % pageInterval == 0) {
+                    if (count == offsets.length) {
+                        granules = Arrays.copyOf(granules, count * 2);
+                        offsets = Arrays.copyOf(offsets, count * 2);
+                    }
+                    granules[count] = page.granulePosition();
+                    offsets[count] = page.offset();
+                    count++;
+                }
+                if (page.isEos()) break;
+            }
+            page = next(channel, page.end(), length, header, finder);
+        }
+        return new OggSeekIndex(serialNumber, dataStart, Arrays.copyOf(granules, count), Arrays.copyOf(offsets, count));
+    }
+
+    /**
+     * Page starting at offset, only the header is read. Falls back to a verified search if there
+     * is no page header at the offset.
+     */
+    private static OggPage next(SeekableByteChannel channel, long offset, long length, ByteBuffer header,
+                                OggPage.Finder finder) throws IOException {
+        if (offset >= length) return null;
+        header.clear();
+        OggPage.readFully(channel, offset, header);
+        header.flip();
+        OggPage page = OggPage.parse(header, offset);
+        return page != null ? page : finder.find(channel, offset, length);
+    }
+
+    /**
+     * Index of the file from the in-memory cache or its sidecar file, building and storing
+     * it in both when there is none yet. A sidecar that cannot be written is skipped.
+     */
+    public static OggSeekIndex forFile(Path file) throws IOException {
+        Key key = Key.of(file);
+        OggSeekIndex index = lookup(key);
+        if (index != null) return index;
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            index = build(channel, DEFAULT_PAGE_INTERVAL);
+        }
+        CACHE.put(key, index);
+        Path sidecar = sidecar(key.path);
+        Path temp = null;
+        try {
+            // readers never see a partly written sidecar
+            temp = Files.createTempFile(sidecar.getParent(), sidecar.getFileName().toString(), ".tmp");
+            try (OutputStream out = new BufferedOutputStream(Files.newOutputStream(temp))) {
+                index.write(out, key.length, key.lastModified);
+            }
+            Files.move(temp, sidecar, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            if (TDebug.TraceAudioFileReader) TDebug.out("Cannot write seek index " + sidecar + ": " + e.getMessage());
+            try {
+                if (temp != null) Files.deleteIfExists(temp);
+            } catch (IOException deleteFailed) {
+                if (TDebug.TraceAudioFileReader) TDebug.out(deleteFailed.getMessage());
+            }
+        }
+        return index;
+    }
+
+    /**
+     * Index of the file from the in-memory cache or its sidecar file, without building one.
+     * A corrupt sidecar counts as none.
+     *
+     * @return the index, or null if there is none for the current length and modification time of the file
+     */
+    public static OggSeekIndex lookup(Path file) throws IOException {
+        return lookup(Key.of(file));
+    }
+
+    private static OggSeekIndex lookup(Key key) throws IOException {
+        OggSeekIndex index = CACHE.get(key);
+        if (index != null) return index;
+        try (InputStream in = new BufferedInputStream(Files.newInputStream(sidecar(key.path)))) {
+            index = read(in, key.length, key.lastModified);
+        } catch (NoSuchFileException e) {
+            return null;
+        } catch (IOException e) {
+            // never trust a sidecar that fails validation, forFile builds and replaces it
+            if (TDebug.TraceAudioFileReader) TDebug.out("Ignoring seek index " + sidecar(key.path) + ": " + e.getMessage());
+            return null;
+        }
+        if (index != null) CACHE.put(key, index);
+        return index;
+    }
+
+    private static Path sidecar(Path file) {
+        return file.resolveSibling(file.getFileName() + SIDECAR_SUFFIX);
+    }
+
+    /**
+     * Writes the index in its compact binary form: a small header followed by
+     * delta encoded granule positions and offsets as variable length integers.
+     *
+     * @param length       length of the indexed file, used to validate the index when reading it back
+     * @param lastModified modification time of the indexed file in milliseconds
+     */
+    public void write(OutputStream out, long length, long lastModified) throws IOException {
+        DataOutputStream data = new DataOutputStream(out);
+        data.writeInt(MAGIC);
+        data.writeByte(VERSION);
+        data.writeLong(length);
+        data.writeLong(lastModified);
+        data.writeInt(serialNumber);
+        data.writeLong(dataStart);
+        data.writeInt(offsets.length);
+        long granule = 0;
+        long offset = 0;
+        for (int i = 0; i < offsets.length; i++) {
+            writeVarLong(data, granulePositions[i] - granule);
+            writeVarLong(data, offsets[i] - offset);
+            granule = granulePositions[i];
+            offset = offsets[i];
+        }
+        data.flush();
+    }
+
+    /**
+     * Reads an index written by {@link #write(OutputStream, long, long)}.
+     *
+     * Entries are validated while reading: granule positions must not decrease, offsets must increase
+     * from the data start and stay within the file.
+     *
+     * @return the index, or null if it was written for a different length or modification time
+     * @throws IOException if the index is corrupt
+     */
+    public static OggSeekIndex read(InputStream in, long length, long lastModified) throws IOException {
+        DataInputStream data = new DataInputStream(in);
+        if (data.readInt() != MAGIC || data.readByte() != VERSION) {
+            throw new IOException("Not a seek index.");
+        }
+        if (data.readLong() != length || data.readLong() != lastModified) {
+            return null;
+        }
+        int serialNumber = data.readInt();
+        long dataStart = data.readLong();
+        int count = data.readInt();
+        // every entry is a page of at least a header and one segment
+        if (count < 0 || count > length / (OggPage.HEADER_SIZE + 1) || dataStart < 0 || dataStart > length) {
+            throw new IOException("Corrupt seek index.");
+        }
+        // grown while reading, so a corrupt count does not allocate up front
+        long[] granules = new long[Math.min(count, 64)];
+        long[] offsets = new long[granules.length];
+        long granule = 0;
+        long offset = 0;
+        for (int i = 0; i < count; i++) {
+            long granuleDelta = readVarLong(data);
+            long offsetDelta = readVarLong(data);
+            // the first offset is relative to 0 and must not lie before the data start
+            if (granuleDelta < 0 || offsetDelta < (i == 0 ? dataStart : 1) || offsetDelta >= length - offset) {
+                throw new IOException("Corrupt seek index.");
+            }
+            granule += granuleDelta;
+            offset += offsetDelta;
+            if (granule < 0) throw new IOException("Corrupt seek index.");
+            if (i == offsets.length) {
+                int grown = (int) Math.min(count, 2L * i);
+                granules = Arrays.copyOf(granules, grown);
+                offsets = Arrays.copyOf(offsets, grown);
+            }
+            granules[i] = granule;
+            offsets[i] = offset;
+        }
+        return new OggSeekIndex(serialNumber, dataStart, granules, offsets);
+    }
+
+    private static void writeVarLong(DataOutputStream out, long value) throws IOException {
+        while ((value & ~0x7FL) != 0) {
+            out.writeByte((int) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        out.writeByte((int) value);
+    }
+
+    private static long readVarLong(DataInputStream in) throws IOException {
+        long value = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            int b = in.readUnsignedByte();
+            value |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) return value;
+        }
+        throw new IOException("Corrupt seek index.");
+    }
+
+    private record Key(Path path, long length, long lastModified) {
+        static Key of(Path file) throws IOException {
+            Path path = file.toAbsolutePath().normalize();
+            return new Key(path, Files.size(path), Files.getLastModifiedTime(path).toMillis());
+        }
+    }
+}
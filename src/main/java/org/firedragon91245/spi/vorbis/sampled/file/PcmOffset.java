@@ -0,0 +1,180 @@
+/*
+	vorbisspi-repackaged - a modernized and modularized version of vorbisspi by javazoom
+    Copyright (C) 2024 FireDragon91245
+
+    This library is free software; you can redistribute it and/or
+    modify it under the terms of the GNU Lesser General Public
+    License as published by the Free Software Foundation; either
+    version 2.1 of the License, or (at your option) any later version.
+
+    This library is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+    Lesser General Public License for more details.
+
+    You should have received a copy of the GNU Lesser General Public
+    License along with this library; if not, write to the Free Software
+    Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301
+    USA
+ */
+
+package org.firedragon91245.spi.vorbis.sampled.file;
+
+import com.jcraft.jogg.Packet;
+import com.jcraft.jogg.Page;
+import com.jcraft.jogg.StreamState;
+import com.jcraft.jogg.SyncState;
+import com.jcraft.jorbis.Comment;
+import com.jcraft.jorbis.Info;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.SeekableByteChannel;
+
+/**
+ * Granule position of the first decoded sample of a Vorbis stream.
+ * <p>
+ * A stream usually starts at granule position 0, but one cut out of a longer stream, such as a recording of
+ * a live broadcast, keeps the granule positions of the original. The offset is the granule position of the
+ * first audio page minus the samples its packets decode to; every packet but the first decodes to a quarter
+ * of its own block size plus a quarter of the block size of the packet before. Frame numbers are granule
+ * positions minus the offset, so the length of the stream is the granule position of its last page minus
+ * the offset.
+ */
+public final class PcmOffset {
+    private static final int READ_SIZE = 4096;
+
+    private PcmOffset() {
+    }
+
+    /**
+     * Offset of the first stream of the channel, decoding its headers for the block sizes.
+     *
+     * @param serialNumber serial number of the first stream
+     * @return the offset, 0 if it cannot be determined
+     * @throws IOException if the headers are corrupt
+     */
+    public static long of(SeekableByteChannel channel, int serialNumber) throws IOException {
+        Info info = new Info();
+        Comment comment = new Comment();
+        info.init();
+        comment.init();
+        Reader reader = new Reader(channel, 0, serialNumber);
+        try {
+            for (int headers = 0; headers < 3; headers++) {
+                if (!reader.next()) return 0;
+                if (info.synthesis_headerin(comment, reader.packet) < 0) {
+                    throw new IOException("Corrupt Vorbis header.");
+                }
+            }
+            return reader.offset(info);
+        } finally {
+            reader.clear();
+            info.clear();
+        }
+    }
+
+    /**
+     * Offset of a stream whose headers have been decoded already.
+     *
+     * @param dataStart byte offset of the first audio page, see {@link OggPage#dataStart(SeekableByteChannel, int)}
+     * @param info      the decoded headers of the stream
+     * @return the offset, 0 if it cannot be determined
+     */
+    public static long of(SeekableByteChannel channel, int serialNumber, long dataStart, Info info) throws IOException {
+        Reader reader = new Reader(channel, dataStart, serialNumber);
+        try {
+            return reader.offset(info);
+        } finally {
+            reader.clear();
+        }
+    }
+
+    /**
+     * The packets of one stream, read from the channel with jogg.
+     */
+    private static final class Reader {
+        private final SeekableByteChannel channel;
+        private final int serialNumber;
+        private final SyncState sync = new SyncState();
+        private final StreamState stream = new StreamState();
+        private final Page page = new Page();
+        private final Packet packet = new Packet();
+        private long position;
+        // granule position of the last page taken in, -1 if it had none
+        private long granule = -1;
+        private boolean eos = false;
+
+        Reader(SeekableByteChannel channel, long position, int serialNumber) {
+            this.channel = channel;
+            this.position = position;
+            this.serialNumber = serialNumber;
+            sync.init();
+            stream.init(serialNumber);
+        }
+
+        /**
+         * Samples of the packets up to the first page with a granule position, subtracted from it.
+         */
+        long offset(Info info) throws IOException {
+            long samples = 0;
+            int previous = -1;
+            // the granule position of the header pages does not count
+            granule = -1;
+            while (true) {
+                for (int result; (result = stream.packetout(packet)) != 0; ) {
+                    // -1 marks the gap before the first page taken in, when that is not the first of the stream
+                    if (result < 0) continue;
+                    int size = info.blocksize(packet);
+                    if (size <= 0) continue;
+                    if (previous != -1) samples += previous / 4 + size / 4;
+                    previous = size;
+                }
+                if (granule != -1) {
+                    // the last page may end before its last packet, a granule position there does not count samples
+                    return eos ? 0 : Math.max(0, granule - samples);
+                }
+                if (!nextPage()) return 0;
+            }
+        }
+
+        /**
+         * Next packet of the stream.
+         *
+         * @return false at the end of the channel
+         */
+        boolean next() throws IOException {
+            while (true) {
+                int result = stream.packetout(packet);
+                if (result == 1) return true;
+                if (result == 0 && !nextPage()) return false;
+            }
+        }
+
+        private boolean nextPage() throws IOException {
+            while (true) {
+                int result = sync.pageout(page);
+                if (result == 1) {
+                    if (page.serialno() != serialNumber) continue;
+                    stream.pagein(page);
+                    granule = page.granulepos();
+                    eos = page.eos() != 0;
+                    return true;
+                }
+                if (result == 0) {
+                    int index = sync.buffer(READ_SIZE);
+                    channel.position(position);
+                    int bytes = channel.read(ByteBuffer.wrap(sync.data, index, READ_SIZE));
+                    if (bytes <= 0) return false;
+                    sync.wrote(bytes);
+                    position += bytes;
+                }
+            }
+        }
+
+        void clear() {
+            stream.clear();
+            sync.clear();
+        }
+    }
+}
@@ -0,0 +1,221 @@
+/*
+	vorbisspi-repackaged - a modernized and modularized version of vorbisspi by javazoom
+    Copyright (C) 2024 FireDragon91245
+
+    This library is free software; you can redistribute it and/or
+    modify it under the terms of the GNU Lesser General Public
+    License as published by the Free Software Foundation; either
+    version 2.1 of the License, or (at your option) any later version.
+
+    This library is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+    Lesser General Public License for more details.
+
+    You should have received a copy of the GNU Lesser General Public
+    License along with this library; if not, write to the Free Software
+    Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301
+    USA
+ */
+
+package org.firedragon91245.spi.vorbis.sampled.file;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.SeekableByteChannel;
+
+/**
+ * Buffered InputStream over a {@link SeekableByteChannel}, for instance a {@link java.nio.channels.FileChannel}.
+ * <p>
+ * Ogg Vorbis streams read from it can be seeked: {@link VorbisAudioFileReader} returns a
+ * {@link SeekableVorbisAudioInputStream} for it, and the decoded streams of the converter then support seeking.
+ * Mark and reset are supported without a read limit. The channel is positioned explicitly before every read,
+ * so positional reads on it in between do not disturb the stream.
+ * <p>
+ * A stream created with {@link #map(FileChannel)} reads from memory mapped windows of the file instead of
+ * copying through a buffer, so a read is a single copy from the page cache without a system call.
+ */
+public class SeekableChannelInputStream extends InputStream {
+    private static final int DEFAULT_BUFFER_SIZE = 16384;
+    private static final long MAP_WINDOW = 1 << 28;
+    private final SeekableByteChannel channel;
+    private final boolean mapped;
+    // read buffer, or the current mapped window
+    private ByteBuffer buffer;
+    // position in the channel of the first byte in buffer
+    private long bufferPosition = 0;
+    private long mark = 0;
+    private volatile OggSeekIndex seekIndex = null;
+
+    /**
+     * Constructor.
+     *
+     * @param channel channel to read from, starting at its current position
+     */
+    public SeekableChannelInputStream(SeekableByteChannel channel) throws IOException {
+        this(channel, DEFAULT_BUFFER_SIZE);
+    }
+
+    /**
+     * Constructor.
+     *
+     * @param channel    channel to read from, starting at its current position
+     * @param bufferSize size of the read buffer
+     */
+    public SeekableChannelInputStream(SeekableByteChannel channel, int bufferSize) throws IOException {
+        this(channel, ByteBuffer.allocate(bufferSize), false);
+    }
+
+    private SeekableChannelInputStream(SeekableByteChannel channel, ByteBuffer buffer, boolean mapped) throws IOException {
+        this.channel = channel;
+        this.mapped = mapped;
+        this.buffer = buffer;
+        this.buffer.flip();
+        this.bufferPosition = channel.position();
+    }
+
+    /**
+     * Stream reading the file through memory mapped windows. The first window is mapped right away;
+     * if that fails the channel is closed.
+     *
+     * @param channel file to read from, starting at its current position
+     */
+    public static SeekableChannelInputStream map(FileChannel channel) throws IOException {
+        try {
+            SeekableChannelInputStream stream = new SeekableChannelInputStream(channel, ByteBuffer.allocate(0), true);
+            stream.refill();
+            return stream;
+        } catch (IOException | RuntimeException e) {
+            try {
+                channel.close();
+            } catch (IOException suppressed) {
+                e.addSuppressed(suppressed);
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * The underlying channel.
+     */
+    public SeekableByteChannel channel() {
+        return channel;
+    }
+
+    /**
+     * Current read position in the channel.
+     */
+    public long position() {
+        return bufferPosition + buffer.position();
+    }
+
+    /**
+     * Total length of the channel.
+     */
+    public long length() throws IOException {
+        return channel.size();
+    }
+
+    /**
+     * Seek index of the stream read from the channel, null if there is none.
+     */
+    public OggSeekIndex getSeekIndex() {
+        return seekIndex;
+    }
+
+    /**
+     * Attaches a seek index, used by seeks instead of bisecting the channel.
+     *
+     * @param seekIndex index built for the content of the channel, or null to remove it
+     */
+    public void setSeekIndex(OggSeekIndex seekIndex) {
+        this.seekIndex = seekIndex;
+    }
+
+    /**
+     * Moves the read position.
+     */
+    public void seek(long position) throws IOException {
+        if (position >= bufferPosition && position <= bufferPosition + buffer.limit()) {
+            buffer.position((int) (position - bufferPosition));
+            return;
+        }
+        bufferPosition = position;
+        buffer.clear().flip();
+    }
+
+    public int read() throws IOException {
+        if (!buffer.hasRemaining() && refill() <= 0) {
+            return -1;
+        }
+        return buffer.get() & 0xff;
+    }
+
+    public int read(byte[] b, int off, int len) throws IOException {
+        if (len == 0) return 0;
+        if (!buffer.hasRemaining()) {
+            if (!mapped && len >= buffer.capacity()) {
+                // large reads bypass the buffer
+                long position = position();
+                channel.position(position);
+                int n = channel.read(ByteBuffer.wrap(b, off, len));
+                if (n > 0) {
+                    bufferPosition = position + n;
+                    buffer.clear().flip();
+                }
+                return n;
+            }
+            if (refill() <= 0) return -1;
+        }
+        int n = Math.min(len, buffer.remaining());
+        buffer.get(b, off, n);
+        return n;
+    }
+
+    public long skip(long n) throws IOException {
+        if (n <= 0) return 0;
+        long skip = Math.max(0, Math.min(n, length() - position()));
+        seek(position() + skip);
+        return skip;
+    }
+
+    public int available() throws IOException {
+        if (buffer.hasRemaining()) return buffer.remaining();
+        return (int) Math.min(Integer.MAX_VALUE, Math.max(0, length() - position()));
+    }
+
+    public boolean markSupported() {
+        return true;
+    }
+
+    public synchronized void mark(int readlimit) {
+        mark = position();
+    }
+
+    public synchronized void reset() throws IOException {
+        seek(mark);
+    }
+
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    private int refill() throws IOException {
+        long position = position();
+        if (mapped) {
+            long size = Math.min(MAP_WINDOW, channel.size() - position);
+            if (size <= 0) return -1;
+            buffer = ((FileChannel) channel).map(FileChannel.MapMode.READ_ONLY, position, size);
+            bufferPosition = position;
+            return (int) size;
+        }
+        buffer.clear();
+        channel.position(position);
+        int n = channel.read(buffer);
+        buffer.flip();
+        bufferPosition = position;
+        return n;
+    }
+}
@@ -0,0 +1,53 @@
+/*
+	vorbisspi-repackaged - a modernized and modularized version of vorbisspi by javazoom
+    Copyright (C) 2024 FireDragon91245
+
+    This library is free software; you can redistribute it and/or
+    modify it under the terms of the GNU Lesser General Public
+    License as published by the Free Software Foundation; either
+    version 2.1 of the License, or (at your option) any later version.
+
+    This library is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+    Lesser General Public License for more details.
+
+    You should have received a copy of the GNU Lesser General Public
+    License along with this library; if not, write to the Free Software
+    Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301
+    USA
+ */
+
+package org.firedragon91245.spi.vorbis.sampled.file;
+
+import javax.sound.sampled.AudioFormat;
+import javax.sound.sampled.AudioInputStream;
+
+/**
+ * Ogg Vorbis AudioInputStream over a seekable source.
+ * <p>
+ * Returned by {@link VorbisAudioFileReader} for files and {@link SeekableChannelInputStream}s,
+ * it gives the Vorbis decoder access to the source so it can seek.
+ */
+public class SeekableVorbisAudioInputStream extends AudioInputStream {
+    private final SeekableChannelInputStream source;
+
+    /**
+     * Constructor.
+     *
+     * @param source seekable Ogg Vorbis source
+     * @param format format
+     * @param length length in frames
+     */
+    public SeekableVorbisAudioInputStream(SeekableChannelInputStream source, AudioFormat format, long length) {
+        super(source, format, length);
+        this.source = source;
+    }
+
+    /**
+     * The seekable source this stream reads from.
+     */
+    public SeekableChannelInputStream getSource() {
+        return source;
+    }
+}
@@ -60,6 +60,7 @@ public class VorbisAudioFileFormat extends TAudioFileFormat {
      * <br>Ogg Vorbis parameters.
      * <ul>
      * <li><b>ogg.length.bytes</b> [Integer], length in bytes.
+     * <li><b>ogg.length.frames</b> [Long], length in sample frames.
      * <li><b>ogg.bitrate.min.bps</b> [Integer], minimum bitrate.
      * <li><b>ogg.bitrate.nominal.bps</b> [Integer], nominal bitrate.
      * <li><b>ogg.bitrate.max.bps</b> [Integer], maximum bitrate.
@@ -22,21 +22,17 @@
 
 package org.firedragon91245.spi.vorbis.sampled.file;
 
-import com.jcraft.jogg.Packet;
-import com.jcraft.jogg.Page;
-import com.jcraft.jogg.StreamState;
-import com.jcraft.jogg.SyncState;
-import com.jcraft.jorbis.*;
 import org.tritonus.share.TDebug;
 import org.tritonus.share.sampled.file.TAudioFileReader;
 
 import javax.sound.sampled.*;
 import java.io.*;
 import java.net.URL;
-import java.nio.charset.StandardCharsets;
+import java.nio.channels.FileChannel;
+import java.nio.channels.SeekableByteChannel;
+import java.nio.file.StandardOpenOption;
 import java.util.HashMap;
 import java.util.Map;
-import java.util.StringTokenizer;
 
 /**
  * This class implements the AudioFileReader class and provides an
@@ -45,35 +41,51 @@ import java.util.StringTokenizer;
 public class VorbisAudioFileReader extends TAudioFileReader {
     private static final int INITIAL_READ_LENGTH = 64000;
     private static final int MARK_LIMIT = INITIAL_READ_LENGTH + 1;
-    private SyncState oggSyncState_ = null;
-    private StreamState oggStreamState_ = null;
-    private Page oggPage_ = null;
-    private Packet oggPacket_ = null;
-    private Info vorbisInfo = null;
-    private Comment vorbisComment = null;
-    private byte[] buffer = null;
-    private int bytes = 0;
-    private int index = 0;
-    private InputStream oggBitStream_ = null;
+    // jdk.jfr is requires static, it may not be in the boot layer; see DecodeMetrics.EVENTS
+    private static final boolean EVENTS = ModuleLayer.boot().findModule("jdk.jfr").isPresent();
+    private static volatile VorbisFormatCache formatCache = null;
 
+    /**
+     * Constructor. The reader keeps no state between calls, one instance can be used from many threads.
+     */
     public VorbisAudioFileReader() {
         super(MARK_LIMIT, true);
     }
 
+    /**
+     * Installs a cache for the formats returned by {@link #getAudioFileFormat(File)} and
+     * {@link #getAudioFileFormat(URL)}, shared by all readers including the one used by AudioSystem.
+     *
+     * @param cache the cache, or null to disable caching
+     */
+    public static void setFormatCache(VorbisFormatCache cache) {
+        formatCache = cache;
+    }
+
+    /**
+     * The installed format cache, null if there is none.
+     */
+    public static VorbisFormatCache getFormatCache() {
+        return formatCache;
+    }
+
     /**
      * Return the AudioFileFormat from the given file.
+     * The length is read from the last page of the file, see {@link #getAudioFileFormat(InputStream, int, int)}.
      */
     public AudioFileFormat getAudioFileFormat(File file) throws UnsupportedAudioFileException, IOException {
         if (TDebug.TraceAudioFileReader) TDebug.out("getAudioFileFormat(File file)");
-        try (InputStream inputStream = new BufferedInputStream(new FileInputStream(file))) {
-            inputStream.mark(MARK_LIMIT);
-            inputStream.reset();
-            // Get Vorbis file info such as length in seconds.
-            VorbisFile vf = new VorbisFile(file.getAbsolutePath());
-            return getAudioFileFormat(inputStream, (int) file.length(), Math.round((vf.time_total(-1)) * 1000));
-        } catch (JOrbisException e) {
-            throw new IOException(e.getMessage());
+        VorbisFormatCache cache = formatCache;
+        Object key = cache != null ? VorbisFormatCache.key(file.toPath()) : null;
+        AudioFileFormat format = key != null ? cache.get(key) : null;
+        if (format != null) return format;
+        // probing reads only the headers and the last page, a plain buffered read is cheaper than mapping
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ);
+             InputStream inputStream = new SeekableChannelInputStream(channel)) {
+            format = getAudioFileFormat(inputStream, (int) file.length(), AudioSystem.NOT_SPECIFIED);
         }
+        if (key != null) cache.put(key, format);
+        return format;
     }
 
     /**
@@ -81,9 +93,15 @@ public class VorbisAudioFileReader extends TAudioFileReader {
      */
     public AudioFileFormat getAudioFileFormat(URL url) throws UnsupportedAudioFileException, IOException {
         if (TDebug.TraceAudioFileReader) TDebug.out("getAudioFileFormat(URL url)");
+        VorbisFormatCache cache = formatCache;
+        Object key = cache != null ? VorbisFormatCache.key(url) : null;
+        AudioFileFormat format = key != null ? cache.get(key) : null;
+        if (format != null) return format;
         try (InputStream inputStream = url.openStream()) {
-            return getAudioFileFormat(inputStream);
+            format = getAudioFileFormat(inputStream);
         }
+        if (key != null) cache.put(key, format);
+        return format;
     }
 
     /**
@@ -110,60 +128,65 @@ public class VorbisAudioFileReader extends TAudioFileReader {
 
     /**
      * Return the AudioFileFormat from the given InputStream, length in bytes and length in milliseconds.
+     * <p>
+     * For a {@link SeekableChannelInputStream} the exact length in sample frames is the granule position
+     * of the last page of the stream, found by reading only the end of the channel, less the granule
+     * position of its first sample. It is the frame length
+     * of the returned AudioFileFormat and the <b>ogg.length.frames</b> property of it and of its AudioFormat.
      */
     protected AudioFileFormat getAudioFileFormat(InputStream bitStream, int mediaLength, int totalms) throws UnsupportedAudioFileException, IOException {
         Map<String, Object> aff_properties = new HashMap<>();
         Map<String, Object> af_properties = new HashMap<>();
 
+        HeaderProbeEvent event = EVENTS ? new HeaderProbeEvent() : null;
+        if (event != null) event.begin();
         if (totalms == AudioSystem.NOT_SPECIFIED) {
             totalms = 0;
         }
         if (totalms > 0) {
-            aff_properties.put("duration", totalms * 1000);
+            aff_properties.put("duration", totalms * 1000L);
         }
-        oggBitStream_ = bitStream;
-        init_jorbis();
-        index = 0;
+        VorbisHeader header;
         try {
-            readHeaders(aff_properties);
+            header = VorbisHeader.read(bitStream);
+        } catch (UnsupportedAudioFileException e) {
+            if (event != null) event.failed(e);
+            throw e;
         } catch (IOException ioe) {
             if (TDebug.TraceAudioFileReader) {
                 TDebug.out(ioe.getMessage());
             }
+            if (event != null) event.failed(ioe);
             throw new UnsupportedAudioFileException(ioe.getMessage());
         }
-
-        String dmp = vorbisInfo.toString();
         if (TDebug.TraceAudioFileReader) {
-            TDebug.out(dmp);
-        }
-        int ind = dmp.lastIndexOf("bitrate:");
-        int minbitrate = -1;
-        int nominalbitrate = -1;
-        int maxbitrate = -1;
-        if (ind != -1) {
-            dmp = dmp.substring(ind + 8);
-            StringTokenizer st = new StringTokenizer(dmp, ",");
-            if (st.hasMoreTokens()) {
-                minbitrate = Integer.parseInt(st.nextToken());
-            }
-            if (st.hasMoreTokens()) {
-                nominalbitrate = Integer.parseInt(st.nextToken());
-            }
-            if (st.hasMoreTokens()) {
-                maxbitrate = Integer.parseInt(st.nextToken());
-            }
+            TDebug.out(header.toString());
         }
+        int minbitrate = header.bitrateMinimum();
+        int nominalbitrate = header.bitrateNominal();
+        int maxbitrate = header.bitrateMaximum();
         if (nominalbitrate > 0) af_properties.put("bitrate", nominalbitrate);
         af_properties.put("vbr", true);
 
+        aff_properties.put("ogg.serial", header.serialNumber());
+        putComments(header, aff_properties);
         if (minbitrate > 0) aff_properties.put("ogg.bitrate.min.bps", minbitrate);
         if (maxbitrate > 0) aff_properties.put("ogg.bitrate.max.bps", maxbitrate);
         if (nominalbitrate > 0) aff_properties.put("ogg.bitrate.nominal.bps", nominalbitrate);
-        if (vorbisInfo.channels > 0) aff_properties.put("ogg.channels", vorbisInfo.channels);
-        if (vorbisInfo.rate > 0) aff_properties.put("ogg.frequency.hz", vorbisInfo.rate);
+        aff_properties.put("ogg.channels", header.channels());
+        aff_properties.put("ogg.frequency.hz", header.sampleRate());
         if (mediaLength > 0) aff_properties.put("ogg.length.bytes", mediaLength);
-        aff_properties.put("ogg.version", vorbisInfo.version);
+        aff_properties.put("ogg.version", header.version());
+
+        long frames = AudioSystem.NOT_SPECIFIED;
+        if (bitStream instanceof SeekableChannelInputStream) {
+            frames = frameLength(((SeekableChannelInputStream) bitStream).channel(), header.serialNumber());
+        }
+        if (frames >= 0) {
+            aff_properties.put("ogg.length.frames", frames);
+            af_properties.put("ogg.length.frames", frames);
+            aff_properties.put("duration", frames * 1000000 / header.sampleRate());
+        }
 
         //AudioFormat.Encoding encoding = VorbisEncoding.VORBISENC;
         //AudioFormat format = new VorbisAudioFormat(encoding, vorbisInfo.rate, AudioSystem.NOT_SPECIFIED, vorbisInfo.channels, AudioSystem.NOT_SPECIFIED, AudioSystem.NOT_SPECIFIED, true,af_properties);
@@ -175,10 +198,27 @@ public class VorbisAudioFileReader extends TAudioFileReader {
 
         AudioFormat.Encoding encoding = VorbisEncoding.VORBISENC;
         // New Patch from MS:
-        AudioFormat format = new VorbisAudioFormat(encoding, vorbisInfo.rate, AudioSystem.NOT_SPECIFIED, vorbisInfo.channels, 1, frameRate, false, af_properties);
+        AudioFormat format = new VorbisAudioFormat(encoding, header.sampleRate(), AudioSystem.NOT_SPECIFIED, header.channels(), 1, frameRate, false, af_properties);
         // Patch end
 
-        return new VorbisAudioFileFormat(VorbisFileFormatType.OGG, format, AudioSystem.NOT_SPECIFIED, mediaLength, aff_properties);
+        int frameLength = frames >= 0 && frames <= Integer.MAX_VALUE ? (int) frames : AudioSystem.NOT_SPECIFIED;
+        if (event != null) event.probed(header, frames);
+        return new VorbisAudioFileFormat(VorbisFileFormatType.OGG, format, frameLength, mediaLength, aff_properties);
+    }
+
+    /**
+     * Length of the stream in sample frames: the granule position of its last page minus the granule position
+     * of its first sample, see {@link PcmOffset}. Only the headers and the end of the channel are read.
+     *
+     * @return the length, or {@link AudioSystem#NOT_SPECIFIED} if there is no page with a granule position
+     * or the last page belongs to another, chained stream
+     */
+    private static long frameLength(SeekableByteChannel channel, int serialNumber) throws IOException {
+        OggPage last = OggPage.findLast(channel, 0, channel.size(), null);
+        if (TDebug.TraceAudioFileReader) TDebug.out("last page: " + last);
+        if (last == null || last.serialNumber() != serialNumber) return AudioSystem.NOT_SPECIFIED;
+        long frames = last.granulePosition() - PcmOffset.of(channel, serialNumber);
+        return frames >= 0 ? frames : AudioSystem.NOT_SPECIFIED;
     }
 
     /**
@@ -200,7 +240,12 @@ public class VorbisAudioFileReader extends TAudioFileReader {
             inputStream.mark(MARK_LIMIT);
             AudioFileFormat audioFileFormat = getAudioFileFormat(inputStream, medialength, totalms);
             inputStream.reset();
-            return new AudioInputStream(inputStream, audioFileFormat.getFormat(), audioFileFormat.getFrameLength());
+            // the frame length counts decoded frames, the encoded stream itself has no length in frames;
+            // the decoded streams take it from the ogg.length.frames property of the format
+            if (inputStream instanceof SeekableChannelInputStream) {
+                return new SeekableVorbisAudioInputStream((SeekableChannelInputStream) inputStream, audioFileFormat.getFormat(), AudioSystem.NOT_SPECIFIED);
+            }
+            return new AudioInputStream(inputStream, audioFileFormat.getFormat(), AudioSystem.NOT_SPECIFIED);
         } catch (UnsupportedAudioFileException | IOException e) {
             inputStream.reset();
             throw e;
@@ -209,10 +254,17 @@ public class VorbisAudioFileReader extends TAudioFileReader {
 
     /**
      * Return the AudioInputStream from the given File.
+     * The returned stream is a {@link SeekableVorbisAudioInputStream}, so decoding it supports seeking.
+     * A seek index of the file found by {@link OggSeekIndex#lookup(java.nio.file.Path)} is attached to it.
      */
     public AudioInputStream getAudioInputStream(File file) throws UnsupportedAudioFileException, IOException {
         if (TDebug.TraceAudioFileReader) TDebug.out("getAudioInputStream(File file)");
-        InputStream inputStream = new FileInputStream(file);
+        SeekableChannelInputStream inputStream = SeekableChannelInputStream.map(FileChannel.open(file.toPath(), StandardOpenOption.READ));
+        try {
+            inputStream.setSeekIndex(OggSeekIndex.lookup(file.toPath()));
+        } catch (IOException e) {
+            if (TDebug.TraceAudioFileReader) TDebug.out("Ignoring seek index: " + e.getMessage());
+        }
         try {
             return getAudioInputStream(inputStream);
         } catch (UnsupportedAudioFileException | IOException e) {
@@ -236,92 +288,14 @@ public class VorbisAudioFileReader extends TAudioFileReader {
     }
 
     /**
-     * Reads headers and comments.
+     * Maps the Ogg Vorbis comments to AudioFileFormat properties.
      */
-    private void readHeaders(Map<String, Object> aff_properties) throws IOException {
-        if (TDebug.TraceAudioConverter) TDebug.out("readHeaders(");
-
-        int bufferMultiple_ = 4;
-        int bufferSize_ = bufferMultiple_ * 256 * 2;
-        index = oggSyncState_.buffer(bufferSize_);
-        buffer = oggSyncState_.data;
-        bytes = readFromStream(buffer, index);
-        if (bytes == -1) {
-            if (TDebug.TraceAudioConverter) TDebug.out("Cannot get any data from selected Ogg bitstream.");
-            throw new IOException("Cannot get any data from selected Ogg bitstream.");
-        }
-        oggSyncState_.wrote(bytes);
-        if (oggSyncState_.pageout(oggPage_) != 1) {
-            if (bytes < bufferSize_) {
-                throw new IOException("EOF");
-            }
-            if (TDebug.TraceAudioConverter) TDebug.out("Input does not appear to be an Ogg bitstream.");
-            throw new IOException("Input does not appear to be an Ogg bitstream.");
-        }
-        oggStreamState_.init(oggPage_.serialno());
-        vorbisInfo.init();
-        vorbisComment.init();
-        aff_properties.put("ogg.serial", oggPage_.serialno());
-        if (oggStreamState_.pagein(oggPage_) < 0) {
-            // error; stream version mismatch perhaps
-            if (TDebug.TraceAudioConverter) TDebug.out("Error reading first page of Ogg bitstream data.");
-            throw new IOException("Error reading first page of Ogg bitstream data.");
-        }
-        if (oggStreamState_.packetout(oggPacket_) != 1) {
-            // no page? must not be vorbis
-            if (TDebug.TraceAudioConverter) TDebug.out("Error reading initial header packet.");
-            throw new IOException("Error reading initial header packet.");
-        }
-        if (vorbisInfo.synthesis_headerin(vorbisComment, oggPacket_) < 0) {
-            // error case; not a vorbis header
-            if (TDebug.TraceAudioConverter) TDebug.out("This Ogg bitstream does not contain Vorbis audio data.");
-            throw new IOException("This Ogg bitstream does not contain Vorbis audio data.");
-        }
-        int i = 0;
-        while (i < 2) {
-            while (i < 2) {
-                int result = oggSyncState_.pageout(oggPage_);
-                if (result == 0) {
-                    break;
-                } // Need more data
-                if (result == 1) {
-                    oggStreamState_.pagein(oggPage_);
-                    while (i < 2) {
-                        result = oggStreamState_.packetout(oggPacket_);
-                        if (result == 0) {
-                            break;
-                        }
-                        if (result == -1) {
-                            if (TDebug.TraceAudioConverter) TDebug.out("Corrupt secondary header.  Exiting.");
-                            throw new IOException("Corrupt secondary header.  Exiting.");
-                        }
-                        vorbisInfo.synthesis_headerin(vorbisComment, oggPacket_);
-                        i++;
-                    }
-                }
-            }
-            index = oggSyncState_.buffer(bufferSize_);
-            buffer = oggSyncState_.data;
-            bytes = readFromStream(buffer, index);
-            if (bytes == -1) {
-                break;
-            }
-            if (bytes == 0 && i < 2) {
-                if (TDebug.TraceAudioConverter) TDebug.out("End of file before finding all Vorbis headers!");
-                throw new IOException("End of file before finding all Vorbis  headers!");
-            }
-            oggSyncState_.wrote(bytes);
-        }
-        // Read Ogg Vorbis comments.
-        byte[][] ptr = vorbisComment.user_comments;
+    private static void putComments(VorbisHeader header, Map<String, Object> aff_properties) {
         String currComment;
         int c = 0;
-        for (byte[] value : ptr) {
-            if (value == null) {
-                break;
-            }
-            currComment = (new String(value, 0, value.length - 1, StandardCharsets.UTF_8)).trim();
-            if (TDebug.TraceAudioConverter) TDebug.out(currComment);
+        for (String comment : header.comments()) {
+            currComment = comment.trim();
+            if (TDebug.TraceAudioFileReader) TDebug.out(currComment);
             if (currComment.toLowerCase().startsWith("artist")) {
                 aff_properties.put("author", currComment.substring(7));
             } else if (currComment.toLowerCase().startsWith("title")) {
@@ -342,43 +316,7 @@ public class VorbisAudioFileReader extends TAudioFileReader {
                 c++;
                 aff_properties.put("ogg.comment.ext." + c, currComment);
             }
-            aff_properties.put("ogg.comment.encodedby", new String(vorbisComment.vendor, 0, vorbisComment.vendor.length - 1));
+            aff_properties.put("ogg.comment.encodedby", header.vendor());
         }
     }
-
-    /**
-     * Reads from the oggBitStream_ a specified number of Bytes(bufferSize_) worth
-     * starting at index and puts them in the specified buffer[].
-     *
-     * @return the number of bytes read or -1 if error.
-     */
-    private int readFromStream(byte[] buffer, int index) {
-        int bytes;
-        try {
-            bytes = oggBitStream_.read(buffer, index, 2048);
-        } catch (Exception e) {
-            if (TDebug.TraceAudioFileReader) {
-                TDebug.out("Cannot Read Selected Song");
-            }
-            bytes = -1;
-        }
-        return bytes;
-    }
-
-    /**
-     * Initializes all the jOrbis and jOgg vars that are used for song playback.
-     */
-    private void init_jorbis() {
-        oggSyncState_ = new SyncState();
-        oggStreamState_ = new StreamState();
-        oggPage_ = new Page();
-        oggPacket_ = new Packet();
-        vorbisInfo = new Info();
-        vorbisComment = new Comment();
-        DspState vorbisDspState = new DspState();
-        new Block(vorbisDspState);
-        buffer = null;
-        bytes = 0;
-        oggSyncState_.init();
-    }
 }
@@ -55,6 +55,7 @@ public class VorbisAudioFormat extends TAudioFormat {
      * <ul>
      * <li><b>bitrate</b> [Integer], bitrate in bits per seconds, average bitrate for VBR enabled stream.
      * <li><b>vbr</b> [Boolean], VBR flag.
+     * <li><b>ogg.length.frames</b> [Long], length in sample frames, the frame length of the decoded streams.
      * </ul>
      */
     public Map<String, Object> properties() {
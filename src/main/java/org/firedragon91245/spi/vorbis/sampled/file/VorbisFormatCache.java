@@ -0,0 +1,190 @@
+/*
+	vorbisspi-repackaged - a modernized and modularized version of vorbisspi by javazoom
+    Copyright (C) 2024 FireDragon91245
+
+    This library is free software; you can redistribute it and/or
+    modify it under the terms of the GNU Lesser General Public
+    License as published by the Free Software Foundation; either
+    version 2.1 of the License, or (at your option) any later version.
+
+    This library is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+    Lesser General Public License for more details.
+
+    You should have received a copy of the GNU Lesser General Public
+    License along with this library; if not, write to the Free Software
+    Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301
+    USA
+ */
+
+package org.firedragon91245.spi.vorbis.sampled.file;
+
+import javax.sound.sampled.AudioFileFormat;
+import java.io.IOException;
+import java.net.HttpURLConnection;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.net.URLConnection;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Bounded LRU cache of parsed file formats, used by {@link VorbisAudioFileReader} once installed with
+ * {@link VorbisAudioFileReader#setFormatCache(VorbisFormatCache)}.
+ * <p>
+ * Files are keyed by path, length and modification time. URLs are keyed by the URL and its validators
+ * (ETag, Last-Modified, Content-Length), which for HTTP costs a HEAD request; URLs without any validator
+ * are not cached. The size of an entry is estimated from its properties, mostly the comment strings.
+ */
+public final class VorbisFormatCache {
+    // rough size of an AudioFileFormat with its AudioFormat and empty property maps
+    private static final int BASE_WEIGHT = 512;
+    private static final int PROPERTY_WEIGHT = 64;
+
+    private final long maxWeight;
+    private final LinkedHashMap<Object, Entry> entries = new LinkedHashMap<>(64, 0.75f, true);
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+    private long weight = 0;
+
+    /**
+     * Constructor.
+     *
+     * @param maxWeight estimated heap size in bytes the cached formats may take
+     */
+    public VorbisFormatCache(long maxWeight) {
+        if (maxWeight <= 0) throw new IllegalArgumentException("maxWeight <= 0");
+        this.maxWeight = maxWeight;
+    }
+
+    /**
+     * Hit, miss and eviction counters and current size.
+     *
+     * @param hits      lookups answered from the cache
+     * @param misses    lookups that had to parse the file
+     * @param evictions entries removed to stay within the size
+     * @param entries   number of cached formats
+     * @param weight    estimated size of the cached formats in bytes
+     */
+    public record Statistics(long hits, long misses, long evictions, int entries, long weight) {
+    }
+
+    public Statistics statistics() {
+        synchronized (entries) {
+            return new Statistics(hits.sum(), misses.sum(), evictions.sum(), entries.size(), weight);
+        }
+    }
+
+    /**
+     * Removes all entries. Counters are kept.
+     */
+    public void clear() {
+        synchronized (entries) {
+            entries.clear();
+            weight = 0;
+        }
+    }
+
+    /**
+     * Cache key of a file, changing whenever the file is modified.
+     */
+    static Object key(Path file) throws IOException {
+        Path path = file.toAbsolutePath().normalize();
+        return new FileKey(path, Files.size(path), Files.getLastModifiedTime(path).toMillis());
+    }
+
+    /**
+     * Cache key of a URL, from its validators.
+     *
+     * @return the key, or null if the URL has no validators and cannot be cached
+     */
+    static Object key(URL url) throws IOException {
+        if ("file".equals(url.getProtocol())) {
+            try {
+                return key(Paths.get(url.toURI()));
+            } catch (URISyntaxException | IllegalArgumentException e) {
+                return null;
+            }
+        }
+        URLConnection connection = url.openConnection();
+        try {
+            if (connection instanceof HttpURLConnection) {
+                ((HttpURLConnection) connection).setRequestMethod("HEAD");
+            }
+            String etag = connection.getHeaderField("ETag");
+            long lastModified = connection.getLastModified();
+            long length = connection.getContentLengthLong();
+            if (etag == null && lastModified == 0) return null;
+            return new UrlKey(url.toExternalForm(), etag, lastModified, length);
+        } finally {
+            if (connection instanceof HttpURLConnection) {
+                ((HttpURLConnection) connection).disconnect();
+            }
+        }
+    }
+
+    /**
+     * @return the cached format, or null
+     */
+    AudioFileFormat get(Object key) {
+        Entry entry;
+        synchronized (entries) {
+            entry = entries.get(key);
+        }
+        if (entry == null) {
+            misses.increment();
+            return null;
+        }
+        hits.increment();
+        return entry.format;
+    }
+
+    void put(Object key, AudioFileFormat format) {
+        Entry entry = new Entry(format, weigh(format));
+        if (entry.weight > maxWeight) return;
+        synchronized (entries) {
+            Entry old = entries.put(key, entry);
+            if (old != null) weight -= old.weight;
+            weight += entry.weight;
+            Iterator<Entry> eldest = entries.values().iterator();
+            while (weight > maxWeight) {
+                Entry evicted = eldest.next();
+                eldest.remove();
+                weight -= evicted.weight;
+                evictions.increment();
+            }
+        }
+    }
+
+    private static long weigh(AudioFileFormat format) {
+        return BASE_WEIGHT + weigh(format.properties()) + weigh(format.getFormat().properties());
+    }
+
+    private static long weigh(Map<String, Object> properties) {
+        long weight = 0;
+        if (properties == null) return weight;
+        for (Map.Entry<String, Object> property : properties.entrySet()) {
+            weight += PROPERTY_WEIGHT + 2L * property.getKey().length();
+            if (property.getValue() instanceof String) {
+                weight += 2L * ((String) property.getValue()).length();
+            }
+        }
+        return weight;
+    }
+
+    private record Entry(AudioFileFormat format, long weight) {
+    }
+
+    private record FileKey(Path path, long length, long lastModified) {
+    }
+
+    private record UrlKey(String url, String etag, long lastModified, long length) {
+    }
+}
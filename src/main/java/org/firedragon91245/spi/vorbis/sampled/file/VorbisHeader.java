@@ -0,0 +1,242 @@
+/*
+	vorbisspi-repackaged - a modernized and modularized version of vorbisspi by javazoom
+    Copyright (C) 2024 FireDragon91245
+
+    This library is free software; you can redistribute it and/or
+    modify it under the terms of the GNU Lesser General Public
+    License as published by the Free Software Foundation; either
+    version 2.1 of the License, or (at your option) any later version.
+
+    This library is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+    Lesser General Public License for more details.
+
+    You should have received a copy of the GNU Lesser General Public
+    License along with this library; if not, write to the Free Software
+    Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301
+    USA
+ */
+
+package org.firedragon91245.spi.vorbis.sampled.file;
+
+import javax.sound.sampled.UnsupportedAudioFileException;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * The three Vorbis header packets of an Ogg stream: identification, comments and setup.
+ * <p>
+ * {@link #read(InputStream)} parses the Ogg pages itself, without jOrbis. Input that does not start with an
+ * Ogg page holding a Vorbis identification header is rejected after its first page header, and an Ogg Vorbis
+ * stream is read exactly up to the end of its header pages.
+ *
+ * @param serialNumber   bitstream serial number
+ * @param version        Vorbis version, always 0
+ * @param channels       number of channels
+ * @param sampleRate     sampling rate in hz
+ * @param bitrateMaximum maximum bitrate in bits per second, 0 or less if not set
+ * @param bitrateNominal nominal bitrate in bits per second, 0 or less if not set
+ * @param bitrateMinimum minimum bitrate in bits per second, 0 or less if not set
+ * @param blockSizeShort short block size in samples
+ * @param blockSizeLong  long block size in samples
+ * @param vendor         vendor string of the encoder
+ * @param comments       user comments as <code>FIELD=value</code>, in stream order
+ * @param headerLength   number of bytes up to the end of the page holding the setup header
+ */
+public record VorbisHeader(int serialNumber, int version, int channels, int sampleRate,
+                           int bitrateMaximum, int bitrateNominal, int bitrateMinimum,
+                           int blockSizeShort, int blockSizeLong,
+                           String vendor, List<String> comments, long headerLength) {
+    private static final int IDENTIFICATION = 1;
+    private static final int COMMENT = 3;
+    private static final int SETUP = 5;
+    private static final int IDENTIFICATION_LENGTH = 30;
+
+    public VorbisHeader {
+        comments = List.copyOf(comments);
+    }
+
+    /**
+     * Value of the first comment with the given field name, compared ignoring case.
+     *
+     * @return the value, or null if there is no such comment
+     */
+    public String comment(String field) {
+        for (String comment : comments) {
+            if (comment.length() > field.length() && comment.charAt(field.length()) == '='
+                    && comment.regionMatches(true, 0, field, 0, field.length())) {
+                return comment.substring(field.length() + 1);
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Reads the header packets from the start of the stream.
+     *
+     * @throws UnsupportedAudioFileException if the stream is not Ogg or its first stream is not Vorbis
+     * @throws IOException                   if the stream ends or is corrupt before the end of the headers
+     */
+    public static VorbisHeader read(InputStream in) throws UnsupportedAudioFileException, IOException {
+        Pages pages = new Pages(in);
+        if (!pages.next() || !pages.isBos()) {
+            throw new UnsupportedAudioFileException("Input does not appear to be an Ogg bitstream.");
+        }
+        int serialNumber = pages.serialNumber();
+        // the identification header is alone on the first page
+        byte[] p = pages.page;
+        int id = pages.headerLength;
+        if (pages.bodyLength < IDENTIFICATION_LENGTH || !isHeader(p, id, IDENTIFICATION)
+                || int32(p, id + 7) != 0 || (p[id + 29] & 1) == 0) {
+            throw new UnsupportedAudioFileException("This Ogg bitstream does not contain Vorbis audio data.");
+        }
+        int channels = p[id + 11] & 0xff;
+        int sampleRate = int32(p, id + 12);
+        int blockSizes = p[id + 28] & 0xff;
+        if (channels == 0 || sampleRate <= 0) {
+            throw new IOException("Corrupt Vorbis identification header.");
+        }
+        int bitrateMaximum = int32(p, id + 16);
+        int bitrateNominal = int32(p, id + 20);
+        int bitrateMinimum = int32(p, id + 24);
+
+        // comment and setup headers, possibly spanning pages; only the comment packet is kept
+        byte[] comment = new byte[0];
+        int commentLength = 0;
+        int packet = 1;
+        boolean packetStart = true;
+        while (packet < 3) {
+            if (!pages.next()) throw new EOFException("End of file before finding all Vorbis headers!");
+            if (pages.serialNumber() != serialNumber) continue;
+            int segments = pages.page[26] & 0xff;
+            int offset = pages.headerLength;
+            for (int i = 0; i < segments && packet < 3; i++) {
+                int lacing = pages.page[OggPage.HEADER_SIZE + i] & 0xff;
+                if (packet == 1) {
+                    if (commentLength + lacing > comment.length) {
+                        comment = Arrays.copyOf(comment, Math.max(2 * comment.length, commentLength + lacing + 1024));
+                    }
+                    System.arraycopy(pages.page, offset, comment, commentLength, lacing);
+                    commentLength += lacing;
+                } else if (packetStart && lacing >= 7 && !isHeader(pages.page, offset, SETUP)) {
+                    throw new IOException("Corrupt secondary header.");
+                }
+                offset += lacing;
+                packetStart = lacing < 255;
+                if (packetStart) packet++;
+            }
+        }
+        if (commentLength < 7 || !isHeader(comment, 0, COMMENT)) {
+            throw new IOException("Corrupt secondary header.");
+        }
+        List<String> comments = new ArrayList<>();
+        String vendor = parseComments(comment, commentLength, comments);
+        return new VorbisHeader(serialNumber, 0, channels, sampleRate, bitrateMaximum, bitrateNominal, bitrateMinimum,
+                1 << (blockSizes & 0x0f), 1 << (blockSizes >> 4), vendor, comments, pages.position);
+    }
+
+    private static String parseComments(byte[] packet, int length, List<String> comments) throws IOException {
+        int p = 7;
+        if (p + 4 > length) throw new IOException("Corrupt comment header.");
+        int vendorLength = int32(packet, p);
+        p += 4;
+        if (vendorLength < 0 || vendorLength > length - p - 4) throw new IOException("Corrupt comment header.");
+        String vendor = new String(packet, p, vendorLength, StandardCharsets.UTF_8);
+        p += vendorLength;
+        int count = int32(packet, p);
+        p += 4;
+        for (int i = 0; i < count; i++) {
+            if (p + 4 > length) throw new IOException("Corrupt comment header.");
+            int commentLength = int32(packet, p);
+            p += 4;
+            if (commentLength < 0 || commentLength > length - p) throw new IOException("Corrupt comment header.");
+            comments.add(new String(packet, p, commentLength, StandardCharsets.UTF_8));
+            p += commentLength;
+        }
+        return vendor;
+    }
+
+    private static boolean isHeader(byte[] b, int off, int type) {
+        return b[off] == type && b[off + 1] == 'v' && b[off + 2] == 'o' && b[off + 3] == 'r'
+                && b[off + 4] == 'b' && b[off + 5] == 'i' && b[off + 6] == 's';
+    }
+
+    private static int int32(byte[] b, int off) {
+        return (b[off] & 0xff) | (b[off + 1] & 0xff) << 8 | (b[off + 2] & 0xff) << 16 | (b[off + 3] & 0xff) << 24;
+    }
+
+    /**
+     * Reads whole, CRC checked pages from a stream into a reused buffer.
+     */
+    private static final class Pages {
+        private final InputStream in;
+        private byte[] page = new byte[OggPage.HEADER_SIZE + 255];
+        private int headerLength;
+        private int bodyLength;
+        // bytes read from the stream
+        private long position = 0;
+
+        Pages(InputStream in) {
+            this.in = in;
+        }
+
+        /**
+         * @return false at the end of the stream
+         */
+        boolean next() throws UnsupportedAudioFileException, IOException {
+            int n = readFully(page, 0, OggPage.HEADER_SIZE);
+            if (n == 0 && position > 0) return false;
+            if (n < OggPage.HEADER_SIZE || page[0] != 'O' || page[1] != 'g' || page[2] != 'g' || page[3] != 'S'
+                    || page[4] != 0) {
+                if (position == n) {
+                    throw new UnsupportedAudioFileException("Input does not appear to be an Ogg bitstream.");
+                }
+                throw new IOException("Lost Ogg page sync.");
+            }
+            int segments = page[26] & 0xff;
+            headerLength = OggPage.HEADER_SIZE + segments;
+            if (readFully(page, OggPage.HEADER_SIZE, segments) < segments) throw new EOFException();
+            bodyLength = 0;
+            for (int i = 0; i < segments; i++) {
+                bodyLength += page[OggPage.HEADER_SIZE + i] & 0xff;
+            }
+            if (page.length < headerLength + bodyLength) {
+                page = Arrays.copyOf(page, headerLength + bodyLength);
+            }
+            if (readFully(page, headerLength, bodyLength) < bodyLength) throw new EOFException();
+            if (OggPage.crc(page, 0, headerLength + bodyLength) != int32(page, 22)) {
+                throw new IOException("Ogg page CRC mismatch.");
+            }
+            return true;
+        }
+
+        boolean isBos() {
+            return (page[5] & OggPage.FLAG_BOS) != 0;
+        }
+
+        boolean isContinued() {
+            return (page[5] & OggPage.FLAG_CONTINUED) != 0;
+        }
+
+        int serialNumber() {
+            return int32(page, 14);
+        }
+
+        private int readFully(byte[] b, int off, int len) throws IOException {
+            int total = 0;
+            while (total < len) {
+                int n = in.read(b, off + total, len - total);
+                if (n < 0) break;
+                total += n;
+            }
+            position += total;
+            return total;
+        }
+    }
+}
@@ -0,0 +1,242 @@
+/*
+	vorbisspi-repackaged - a modernized and modularized version of vorbisspi by javazoom
+    Copyright (C) 2024 FireDragon91245
+
+    This library is free software; you can redistribute it and/or
+    modify it under the terms of the GNU Lesser General Public
+    License as published by the Free Software Foundation; either
+    version 2.1 of the License, or (at your option) any later version.
+
+    This library is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+    Lesser General Public License for more details.
+
+    You should have received a copy of the GNU Lesser General Public
+    License along with this library; if not, write to the Free Software
+    Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301
+    USA
+ */
+
+package org.firedragon91245.spi.vorbis.sampled.file;
+
+import org.tritonus.share.TDebug;
+
+import javax.sound.sampled.UnsupportedAudioFileException;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * Probes many Ogg Vorbis files in parallel with one shared {@link VorbisAudioFileReader}.
+ * <p>
+ * At most <code>concurrency</code> files are open and probed at the same time. Results are handed out in
+ * completion order while the rest of the scan is still running, each {@link Scan} reports its throughput.
+ * <pre>{@code
+ * try (VorbisLibraryScanner scanner = new VorbisLibraryScanner(8);
+ *      VorbisLibraryScanner.Scan scan = scanner.scan(Path.of("music"))) {
+ *     scan.stream().forEach(result -> ...);
+ *     System.out.println(scan.statistics());
+ * }
+ * }</pre>
+ */
+public final class VorbisLibraryScanner implements AutoCloseable {
+    private final VorbisAudioFileReader reader = new VorbisAudioFileReader();
+    private final ExecutorService executor;
+
+    /**
+     * Constructor, probing as many files at once as there are processors.
+     */
+    public VorbisLibraryScanner() {
+        this(Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * Constructor.
+     *
+     * @param concurrency maximum number of files probed at the same time
+     */
+    public VorbisLibraryScanner(int concurrency) {
+        if (concurrency < 1) throw new IllegalArgumentException("concurrency < 1");
+        AtomicInteger threads = new AtomicInteger();
+        this.executor = Executors.newFixedThreadPool(concurrency, r -> {
+            Thread thread = new Thread(r, "vorbis-scanner-" + threads.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Scans all <code>.ogg</code> and <code>.oga</code> files in the directory tree.
+     */
+    public Scan scan(Path directory) throws IOException {
+        List<Path> files;
+        try (Stream<Path> walk = Files.walk(directory)) {
+            files = walk.filter(VorbisLibraryScanner::isOgg).toList();
+        }
+        return scan(files);
+    }
+
+    /**
+     * Scans the given files.
+     */
+    public Scan scan(Collection<Path> files) {
+        return new Scan(files);
+    }
+
+    /**
+     * Stops the probing threads. Running scans are cancelled.
+     */
+    public void close() {
+        executor.shutdownNow();
+    }
+
+    private static boolean isOgg(Path path) {
+        String name = path.getFileName().toString().toLowerCase(Locale.ROOT);
+        return (name.endsWith(".ogg") || name.endsWith(".oga")) && Files.isRegularFile(path);
+    }
+
+    /**
+     * Outcome of probing one file.
+     *
+     * @param path   the file
+     * @param format the file format, null if probing failed
+     * @param error  usually {@link IOException} or {@link UnsupportedAudioFileException}, null if probing succeeded
+     * @param nanos  time spent probing the file
+     */
+    public record Result(Path path, VorbisAudioFileFormat format, Exception error, long nanos) {
+        public boolean isSuccess() {
+            return error == null;
+        }
+    }
+
+    /**
+     * Throughput of a scan so far.
+     *
+     * @param files        number of files in the scan
+     * @param completed    number of files probed, including failures
+     * @param failed       number of files that could not be probed
+     * @param bytes        total length of the files probed successfully
+     * @param elapsedNanos wall clock time since the scan started, or until it completed
+     */
+    public record Statistics(int files, int completed, int failed, long bytes, long elapsedNanos) {
+        public double filesPerSecond() {
+            return elapsedNanos == 0 ? 0 : completed * 1e9 / elapsedNanos;
+        }
+
+        public double bytesPerSecond() {
+            return elapsedNanos == 0 ? 0 : bytes * 1e9 / elapsedNanos;
+        }
+
+        public String toString() {
+            return String.format(Locale.ROOT, "%d/%d files (%d failed) in %.3f s, %.1f files/s, %.2f MB/s",
+                    completed, files, failed, elapsedNanos / 1e9, filesPerSecond(), bytesPerSecond() / 1e6);
+        }
+    }
+
+    /**
+     * A running scan, iterating over its results in completion order.
+     * Closing it cancels the files not probed yet.
+     */
+    public final class Scan implements Iterator<Result>, AutoCloseable {
+        private final CompletionService<Result> completion = new ExecutorCompletionService<>(executor);
+        private final List<Future<Result>> futures;
+        // set before any probe is submitted, the probes compare against it
+        private final int total;
+        private final long start = System.nanoTime();
+        private final AtomicInteger completed = new AtomicInteger();
+        private final AtomicInteger failed = new AtomicInteger();
+        private final AtomicLong bytes = new AtomicLong();
+        private final AtomicLong end = new AtomicLong();
+        private int taken = 0;
+
+        private Scan(Collection<Path> files) {
+            total = files.size();
+            futures = new ArrayList<>(total);
+            for (Path file : files) {
+                futures.add(completion.submit(() -> probe(file)));
+            }
+            if (total == 0) end.set(start);
+        }
+
+        private Result probe(Path file) {
+            long t = System.nanoTime();
+            VorbisAudioFileFormat format = null;
+            Exception error = null;
+            try {
+                format = (VorbisAudioFileFormat) reader.getAudioFileFormat(file.toFile());
+                bytes.addAndGet(format.getByteLength());
+            } catch (Exception e) {
+                // a malformed file may also fail inside jorbis, only this file fails
+                if (TDebug.TraceAudioFileReader) TDebug.out("scan " + file + ": " + e.getMessage());
+                error = e;
+                failed.incrementAndGet();
+            }
+            long now = System.nanoTime();
+            if (completed.incrementAndGet() == total) end.set(now);
+            return new Result(file, format, error, now - t);
+        }
+
+        public boolean hasNext() {
+            return taken < total;
+        }
+
+        /**
+         * Waits for the next probed file.
+         *
+         * @throws java.util.concurrent.CancellationException if the scan was closed
+         */
+        public Result next() {
+            if (!hasNext()) throw new NoSuchElementException();
+            try {
+                Future<Result> future = completion.take();
+                taken++;
+                return future.get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                close();
+                throw new IllegalStateException("Interrupted while scanning.", e);
+            } catch (ExecutionException e) {
+                throw new IllegalStateException(e.getCause());
+            }
+        }
+
+        /**
+         * The remaining results as a sequential stream.
+         */
+        public Stream<Result> stream() {
+            return StreamSupport.stream(Spliterators.spliterator(this, total - taken,
+                    Spliterator.NONNULL | Spliterator.SIZED), false).onClose(this::close);
+        }
+
+        public Statistics statistics() {
+            long e = end.get();
+            return new Statistics(total, completed.get(), failed.get(), bytes.get(),
+                    (e != 0 ? e : System.nanoTime()) - start);
+        }
+
+        public void close() {
+            for (Future<Result> future : futures) {
+                future.cancel(true);
+            }
+        }
+    }
+}
@@ -0,0 +1,91 @@
+/*
+	vorbisspi-repackaged - a modernized and modularized version of vorbisspi by javazoom
+    Copyright (C) 2024 FireDragon91245
+
+    This library is free software; you can redistribute it and/or
+    modify it under the terms of the GNU Lesser General Public
+    License as published by the Free Software Foundation; either
+    version 2.1 of the License, or (at your option) any later version.
+
+    This library is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+    Lesser General Public License for more details.
+
+    You should have received a copy of the GNU Lesser General Public
+    License along with this library; if not, write to the Free Software
+    Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301
+    USA
+ */
+
+package org.firedragon91245.spi.vorbis.sampled.convert;
+
+import org.junit.jupiter.api.Test;
+
+import javax.sound.sampled.AudioInputStream;
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class DecodedClipCacheTest {
+    private static final int THREADS = 8;
+
+    @Test
+    void concurrentMissesShareOneDecode() throws Exception {
+        DecodedClipCache cache = new DecodedClipCache(1 << 24, 1 << 24);
+        File file = Fixtures.file("stereo44.ogg");
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        CountDownLatch start = new CountDownLatch(1);
+        try {
+            List<Future<DecodedClip>> clips = new ArrayList<>();
+            for (int t = 0; t < THREADS; t++) {
+                clips.add(executor.submit(() -> {
+                    start.await();
+                    return cache.getClip(file, Fixtures.PCM_44);
+                }));
+            }
+            start.countDown();
+            DecodedClip first = clips.get(0).get();
+            for (Future<DecodedClip> clip : clips) {
+                assertSame(first, clip.get());
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        DecodedClipCache.Statistics statistics = cache.statistics();
+        assertEquals(1, statistics.misses());
+        assertEquals(THREADS - 1, statistics.hits());
+        try (AudioInputStream pcm = cache.getAudioInputStream(file, Fixtures.PCM_44)) {
+            assertArrayEquals(Fixtures.decode("stereo44.ogg", Fixtures.PCM_44), pcm.readAllBytes());
+        }
+    }
+
+    @Test
+    void evictsLeastRecentlyPlayedOverBudget() throws Exception {
+        long size44 = Fixtures.decode("stereo44.ogg", Fixtures.PCM_44).length;
+        long sizeLate = Fixtures.decode("late-start.ogg", Fixtures.PCM_44).length;
+        DecodedClipCache cache = new DecodedClipCache(size44 + sizeLate, size44);
+        cache.getClip(Fixtures.file("stereo22.ogg"), Fixtures.PCM_22);
+        cache.getClip(Fixtures.file("stereo44.ogg"), Fixtures.PCM_44);
+        // stereo22 played last, so stereo44 goes when late-start comes in
+        cache.getClip(Fixtures.file("stereo22.ogg"), Fixtures.PCM_22);
+        cache.getClip(Fixtures.file("late-start.ogg"), Fixtures.PCM_44);
+        DecodedClipCache.Statistics statistics = cache.statistics();
+        assertEquals(1, statistics.evictions());
+        assertEquals(2, statistics.clips());
+        assertTrue(statistics.bytes() <= size44 + sizeLate);
+        cache.getClip(Fixtures.file("stereo22.ogg"), Fixtures.PCM_22);
+        cache.getClip(Fixtures.file("stereo44.ogg"), Fixtures.PCM_44);
+        assertEquals(4, cache.statistics().misses());
+        assertEquals(2, cache.statistics().hits());
+    }
+}
@@ -0,0 +1,54 @@
+/*
+	vorbisspi-repackaged - a modernized and modularized version of vorbisspi by javazoom
+    Copyright (C) 2024 FireDragon91245
+
+    This library is free software; you can redistribute it and/or
+    modify it under the terms of the GNU Lesser General Public
+    License as published by the Free Software Foundation; either
+    version 2.1 of the License, or (at your option) any later version.
+
+    This library is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+    Lesser General Public License for more details.
+
+    You should have received a copy of the GNU Lesser General Public
+    License along with this library; if not, write to the Free Software
+    Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301
+    USA
+ */
+
+
+package org.firedragon91245.spi.vorbis.sampled.convert;
+
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class DecodedVorbisAudioInputStreamTest {
+    // forwards and backwards, on and next to page boundaries
+    private static final long[] FRAMES = {0, 1, 500, 44032, 4095, 44033, 80000, 2, 60000};
+
+    @ParameterizedTest
+    @ValueSource(strings = {"stereo44.ogg", "multipage-headers.ogg", "late-start.ogg"})
+    void seekToFrameEqualsLinearDecode(String name) throws Exception {
+        byte[] linear = Fixtures.decode(name, Fixtures.PCM_44);
+        // the probed length counts from the first sample, also when that is not at granule position 0
+        assertEquals((long) linear.length / 4, Fixtures.encoded(name).getFormat().getProperty("ogg.length.frames"));
+        try (DecodedVorbisAudioInputStream pcm = new DecodedVorbisAudioInputStream(Fixtures.PCM_44, Fixtures.encoded(name))) {
+            assertTrue(pcm.isSeekable());
+            for (long frame : FRAMES) {
+                if (frame * 4 >= linear.length) continue;
+                assertEquals(frame, pcm.seekToFrame(frame));
+                int from = (int) frame * 4;
+                byte[] expected = Arrays.copyOfRange(linear, from, Math.min(linear.length, from + 16384));
+                assertArrayEquals(expected, pcm.readNBytes(expected.length), name + " at frame " + frame);
+            }
+        }
+    }
+}
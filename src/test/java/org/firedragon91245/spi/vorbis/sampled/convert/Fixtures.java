@@ -0,0 +1,76 @@
+/*
+	vorbisspi-repackaged - a modernized and modularized version of vorbisspi by javazoom
+    Copyright (C) 2024 FireDragon91245
+
+    This library is free software; you can redistribute it and/or
+    modify it under the terms of the GNU Lesser General Public
+    License as published by the Free Software Foundation; either
+    version 2.1 of the License, or (at your option) any later version.
+
+    This library is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+    Lesser General Public License for more details.
+
+    You should have received a copy of the GNU Lesser General Public
+    License along with this library; if not, write to the Free Software
+    Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301
+    USA
+ */
+
+
+package org.firedragon91245.spi.vorbis.sampled.convert;
+
+import org.firedragon91245.spi.vorbis.sampled.file.VorbisAudioFileReader;
+
+import javax.sound.sampled.AudioFormat;
+import javax.sound.sampled.AudioInputStream;
+import javax.sound.sampled.UnsupportedAudioFileException;
+import java.io.File;
+import java.io.IOException;
+import java.net.URISyntaxException;
+import java.net.URL;
+
+/**
+ * Small Ogg Vorbis files checked in under src/test/resources, made with the FFmpeg Vorbis encoder.
+ * <ul>
+ *     <li>stereo44.ogg: 3 s at 44.1 kHz</li>
+ *     <li>stereo22.ogg: 2 s at 22.05 kHz</li>
+ *     <li>chained.ogg: stereo44.ogg followed by a second 1 s link with another serial number</li>
+ *     <li>multipage-headers.ogg: 2 s at 44.1 kHz with a large comment, its header packets spread over
+ *     pages with granule position -1</li>
+ *     <li>late-start.ogg: the headers and the last two audio pages of stereo44.ogg, so its first sample is
+ *     not at granule position 0, as in a stream cut from a live broadcast</li>
+ * </ul>
+ */
+final class Fixtures {
+    static final AudioFormat PCM_44 = new AudioFormat(44100f, 16, 2, true, false);
+    static final AudioFormat PCM_22 = new AudioFormat(22050f, 16, 2, true, false);
+
+    private Fixtures() {
+    }
+
+    static File file(String name) {
+        URL url = Fixtures.class.getResource("/org/firedragon91245/spi/vorbis/sampled/" + name);
+        if (url == null) throw new IllegalArgumentException("no fixture " + name);
+        try {
+            return new File(url.toURI());
+        } catch (URISyntaxException e) {
+            throw new IllegalArgumentException(e);
+        }
+    }
+
+    static AudioInputStream encoded(String name) throws UnsupportedAudioFileException, IOException {
+        return new VorbisAudioFileReader().getAudioInputStream(file(name));
+    }
+
+    /**
+     * The whole file decoded by {@link DecodedVorbisAudioInputStream}, the reference the other decoders are
+     * compared with.
+     */
+    static byte[] decode(String name, AudioFormat targetFormat) throws UnsupportedAudioFileException, IOException {
+        try (AudioInputStream pcm = new DecodedVorbisAudioInputStream(targetFormat, encoded(name))) {
+            return pcm.readAllBytes();
+        }
+    }
+}
@@ -0,0 +1,57 @@
+/*
+	vorbisspi-repackaged - a modernized and modularized version of vorbisspi by javazoom
+    Copyright (C) 2024 FireDragon91245
+
+    This library is free software; you can redistribute it and/or
+    modify it under the terms of the GNU Lesser General Public
+    License as published by the Free Software Foundation; either
+    version 2.1 of the License, or (at your option) any later version.
+
+    This library is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+    Lesser General Public License for more details.
+
+    You should have received a copy of the GNU Lesser General Public
+    License along with this library; if not, write to the Free Software
+    Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301
+    USA
+ */
+
+
+package org.firedragon91245.spi.vorbis.sampled.convert;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.channels.Channels;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class ParallelVorbisDecoderTest {
+    @ParameterizedTest
+    @ValueSource(strings = {"stereo44.ogg", "late-start.ogg"})
+    void segmentsEqualSequentialDecode(String name) throws Exception {
+        byte[] expected = Fixtures.decode(name, Fixtures.PCM_44);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        // segments much shorter than the file, with boundaries inside pages
+        try (ParallelVorbisDecoder decoder = new ParallelVorbisDecoder(3, 10_000)) {
+            long frames = decoder.decode(Fixtures.file(name), Fixtures.PCM_44, Channels.newChannel(out));
+            assertEquals(expected.length / 4, frames);
+        }
+        assertArrayEquals(expected, out.toByteArray());
+    }
+
+    @Test
+    void chainedFileDecodesSequentially() throws Exception {
+        byte[] expected = Fixtures.decode("chained.ogg", Fixtures.PCM_44);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (ParallelVorbisDecoder decoder = new ParallelVorbisDecoder(3, 10_000)) {
+            decoder.decode(Fixtures.file("chained.ogg"), Fixtures.PCM_44, Channels.newChannel(out));
+        }
+        assertArrayEquals(expected, out.toByteArray());
+    }
+}
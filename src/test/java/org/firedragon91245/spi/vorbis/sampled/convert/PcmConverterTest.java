@@ -0,0 +1,75 @@
+/*
+	vorbisspi-repackaged - a modernized and modularized version of vorbisspi by javazoom
+    Copyright (C) 2024 FireDragon91245
+
+    This library is free software; you can redistribute it and/or
+    modify it under the terms of the GNU Lesser General Public
+    License as published by the Free Software Foundation; either
+    version 2.1 of the License, or (at your option) any later version.
+
+    This library is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+    Lesser General Public License for more details.
+
+    You should have received a copy of the GNU Lesser General Public
+    License along with this library; if not, write to the Free Software
+    Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301
+    USA
+ */
+
+
+package org.firedragon91245.spi.vorbis.sampled.convert;
+
+import org.junit.jupiter.api.Test;
+
+import javax.sound.sampled.AudioFormat;
+import java.nio.ByteBuffer;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class PcmConverterTest {
+    private static final int SAMPLES = 1000;
+    private static final int OFFSET = 5;
+
+    @Test
+    void directBufferEqualsArray() {
+        Random random = new Random(1);
+        for (int channels = 1; channels <= 3; channels++) {
+            float[][] pcm = new float[channels][SAMPLES + OFFSET];
+            int[] index = new int[channels];
+            for (int c = 0; c < channels; c++) {
+                index[c] = c % 2 == 0 ? 0 : OFFSET;
+                for (int j = 0; j < pcm[c].length; j++) {
+                    // beyond full scale too, to cover the clamping
+                    pcm[c][j] = (random.nextFloat() - 0.5f) * 2.5f;
+                }
+            }
+            for (AudioFormat format : formats(channels)) {
+                PcmConverter converter = new PcmConverter(format);
+                int length = SAMPLES * converter.frameSize();
+                byte[] array = new byte[OFFSET + length];
+                assertEquals(length, converter.convert(pcm, index, SAMPLES, array, OFFSET));
+                ByteBuffer direct = ByteBuffer.allocateDirect(OFFSET + length).position(OFFSET);
+                assertEquals(length, converter.convert(pcm, index, SAMPLES, direct));
+                assertEquals(OFFSET + length, direct.position());
+                byte[] written = new byte[OFFSET + length];
+                direct.get(0, written);
+                assertArrayEquals(array, written, format.toString());
+            }
+        }
+    }
+
+    private static AudioFormat[] formats(int channels) {
+        return new AudioFormat[]{
+                new AudioFormat(44100f, 16, channels, true, false),
+                new AudioFormat(44100f, 16, channels, true, true),
+                new AudioFormat(44100f, 24, channels, true, false),
+                new AudioFormat(44100f, 24, channels, true, true),
+                new AudioFormat(AudioFormat.Encoding.PCM_FLOAT, 44100f, 32, channels, 4 * channels, 44100f, false),
+                new AudioFormat(AudioFormat.Encoding.PCM_FLOAT, 44100f, 32, channels, 4 * channels, 44100f, true),
+        };
+    }
+}
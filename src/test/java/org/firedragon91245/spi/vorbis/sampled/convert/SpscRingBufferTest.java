@@ -0,0 +1,125 @@
+/*
+	vorbisspi-repackaged - a modernized and modularized version of vorbisspi by javazoom
+    Copyright (C) 2024 FireDragon91245
+
+    This library is free software; you can redistribute it and/or
+    modify it under the terms of the GNU Lesser General Public
+    License as published by the Free Software Foundation; either
+    version 2.1 of the License, or (at your option) any later version.
+
+    This library is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+    Lesser General Public License for more details.
+
+    You should have received a copy of the GNU Lesser General Public
+    License along with this library; if not, write to the Free Software
+    Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301
+    USA
+ */
+
+
+package org.firedragon91245.spi.vorbis.sampled.convert;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SpscRingBufferTest {
+    @ParameterizedTest
+    @ValueSource(booleans = {false, true})
+    void wrapsAroundWithoutLosingData(boolean direct) {
+        // capacity 10 on 16 bytes of storage, so reads and writes wrap at varying positions
+        SpscRingBuffer ring = new SpscRingBuffer(10, direct);
+        Random random = new Random(1);
+        byte next = 0;
+        byte expected = 0;
+        for (int i = 0; i < 1000; i++) {
+            byte[] in = new byte[random.nextInt(12)];
+            int room = ring.availableWrite();
+            for (int j = 0; j < in.length; j++) in[j] = (byte) (next + j);
+            int written = ring.write(in, 0, in.length);
+            assertEquals(Math.min(in.length, room), written);
+            next += (byte) written;
+            byte[] out = new byte[random.nextInt(12)];
+            int available = ring.availableRead();
+            int read = ring.read(out, 0, out.length);
+            assertEquals(Math.min(out.length, available), read);
+            for (int j = 0; j < read; j++) assertEquals(expected++, out[j]);
+        }
+    }
+
+    @Test
+    void refusesWritesWhenFullAndReadsNothingWhenEmpty() {
+        SpscRingBuffer ring = new SpscRingBuffer(8, false);
+        assertEquals(0, ring.read(new byte[4], 0, 4));
+        assertEquals(8, ring.write(new byte[12], 0, 12));
+        assertEquals(0, ring.availableWrite());
+        assertEquals(0, ring.write(new byte[1], 0, 1));
+        assertEquals(3, ring.skip(3));
+        assertEquals(5, ring.availableRead());
+        assertEquals(3, ring.availableWrite());
+    }
+
+    @Test
+    void closeDrainsWhatIsLeft() throws Exception {
+        SpscRingBuffer ring = new SpscRingBuffer(8, false);
+        ring.write(new byte[]{1, 2, 3}, 0, 3);
+        ring.close();
+        assertTrue(ring.isClosed());
+        assertEquals(0, ring.write(new byte[1], 0, 1));
+        assertFalse(ring.awaitWritable(1));
+        assertTrue(ring.awaitReadable(3));
+        byte[] out = new byte[8];
+        assertEquals(3, ring.read(out, 0, out.length));
+        assertArrayEquals(new byte[]{1, 2, 3}, Arrays.copyOf(out, 3));
+        assertFalse(ring.awaitReadable(1));
+    }
+
+    @ParameterizedTest
+    @ValueSource(booleans = {false, true})
+    void transfersBetweenTwoThreads(boolean direct) throws Exception {
+        int total = 8 << 20;
+        SpscRingBuffer ring = new SpscRingBuffer(1000, direct);
+        CompletableFuture<Void> producer = CompletableFuture.runAsync(() -> {
+            byte[] chunk = new byte[777];
+            int sent = 0;
+            try {
+                while (sent < total) {
+                    int len = Math.min(chunk.length, total - sent);
+                    for (int j = 0; j < len; j++) chunk[j] = (byte) ((sent + j) * 31);
+                    int off = 0;
+                    while (off < len) {
+                        ring.awaitWritable(1);
+                        off += ring.write(chunk, off, len - off);
+                    }
+                    sent += len;
+                }
+            } catch (Exception e) {
+                throw new IllegalStateException(e);
+            }
+            ring.close();
+        });
+        byte[] chunk = new byte[333];
+        int received = 0;
+        while (ring.awaitReadable(1)) {
+            int n = ring.read(chunk, 0, chunk.length);
+            for (int j = 0; j < n; j++) {
+                assertEquals((byte) ((received + j) * 31), chunk[j], "byte " + (received + j));
+            }
+            received += n;
+        }
+        producer.get(10, TimeUnit.SECONDS);
+        assertEquals(total, received);
+    }
+}
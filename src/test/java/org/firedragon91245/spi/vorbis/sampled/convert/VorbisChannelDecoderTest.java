@@ -0,0 +1,62 @@
+/*
+	vorbisspi-repackaged - a modernized and modularized version of vorbisspi by javazoom
+    Copyright (C) 2024 FireDragon91245
+
+    This library is free software; you can redistribute it and/or
+    modify it under the terms of the GNU Lesser General Public
+    License as published by the Free Software Foundation; either
+    version 2.1 of the License, or (at your option) any later version.
+
+    This library is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+    Lesser General Public License for more details.
+
+    You should have received a copy of the GNU Lesser General Public
+    License along with this library; if not, write to the Free Software
+    Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301
+    USA
+ */
+
+
+package org.firedragon91245.spi.vorbis.sampled.convert;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+
+class VorbisChannelDecoderTest {
+    private static byte[] drain(VorbisChannelDecoder decoder, ByteBuffer pcm) throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        byte[] chunk = new byte[pcm.capacity()];
+        while (decoder.read(pcm.clear()) >= 0) {
+            pcm.flip().get(chunk, 0, pcm.remaining());
+            out.write(chunk, 0, pcm.position());
+        }
+        return out.toByteArray();
+    }
+
+    @Test
+    void channelIntoDirectBufferEqualsStreamDecode() throws Exception {
+        byte[] expected = Fixtures.decode("stereo22.ogg", Fixtures.PCM_22);
+        try (VorbisChannelDecoder decoder = new VorbisChannelDecoder(
+                FileChannel.open(Fixtures.file("stereo22.ogg").toPath(), StandardOpenOption.READ), Fixtures.PCM_22)) {
+            assertArrayEquals(expected, drain(decoder, ByteBuffer.allocateDirect(4000)));
+        }
+    }
+
+    @Test
+    void bufferIntoHeapBufferEqualsStreamDecode() throws Exception {
+        byte[] expected = Fixtures.decode("chained.ogg", Fixtures.PCM_44);
+        ByteBuffer encoded = ByteBuffer.wrap(Files.readAllBytes(Fixtures.file("chained.ogg").toPath()));
+        try (VorbisChannelDecoder decoder = new VorbisChannelDecoder(encoded, Fixtures.PCM_44)) {
+            assertArrayEquals(expected, drain(decoder, ByteBuffer.allocate(4096)));
+        }
+    }
+}
@@ -0,0 +1,114 @@
+/*
+	vorbisspi-repackaged - a modernized and modularized version of vorbisspi by javazoom
+    Copyright (C) 2024 FireDragon91245
+
+    This library is free software; you can redistribute it and/or
+    modify it under the terms of the GNU Lesser General Public
+    License as published by the Free Software Foundation; either
+    version 2.1 of the License, or (at your option) any later version.
+
+    This library is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+    Lesser General Public License for more details.
+
+    You should have received a copy of the GNU Lesser General Public
+    License along with this library; if not, write to the Free Software
+    Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301
+    USA
+ */
+
+
+package org.firedragon91245.spi.vorbis.sampled.convert;
+
+import org.junit.jupiter.api.Test;
+
+import javax.sound.sampled.AudioInputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class VorbisDecodeSchedulerTest {
+    /**
+     * Encoded stream that records being closed.
+     */
+    private static final class Tracked extends AudioInputStream {
+        volatile boolean closed = false;
+
+        Tracked(AudioInputStream encoded) {
+            super(encoded, encoded.getFormat(), encoded.getFrameLength());
+        }
+
+        public void close() throws IOException {
+            closed = true;
+            super.close();
+        }
+    }
+
+    private static void awaitTrue(BooleanSupplier condition) throws InterruptedException {
+        for (int i = 0; i < 500 && !condition.getAsBoolean(); i++) {
+            Thread.sleep(10);
+        }
+        assertTrue(condition.getAsBoolean());
+    }
+
+    @Test
+    void manyStreamsDecodeLikeOne() throws Exception {
+        byte[] expected = Fixtures.decode("stereo44.ogg", Fixtures.PCM_44);
+        try (VorbisDecodeScheduler scheduler = new VorbisDecodeScheduler(2, 50)) {
+            List<CompletableFuture<byte[]>> results = new ArrayList<>();
+            for (int i = 0; i < 12; i++) {
+                AudioInputStream pcm = scheduler.open(Fixtures.encoded("stereo44.ogg"), Fixtures.PCM_44);
+                results.add(CompletableFuture.supplyAsync(() -> {
+                    try (pcm) {
+                        return pcm.readAllBytes();
+                    } catch (IOException e) {
+                        throw new IllegalStateException(e);
+                    }
+                }));
+            }
+            for (CompletableFuture<byte[]> result : results) {
+                assertArrayEquals(expected, result.get(30, TimeUnit.SECONDS));
+            }
+            awaitTrue(() -> scheduler.statistics().streams() == 0);
+        }
+    }
+
+    @Test
+    void closingAStreamReleasesIt() throws Exception {
+        try (VorbisDecodeScheduler scheduler = new VorbisDecodeScheduler(1, 50)) {
+            Tracked encoded = new Tracked(Fixtures.encoded("stereo44.ogg"));
+            AudioInputStream pcm = scheduler.open(encoded, Fixtures.PCM_44);
+            assertEquals(4096, pcm.readNBytes(4096).length);
+            pcm.close();
+            awaitTrue(() -> encoded.closed && scheduler.statistics().streams() == 0);
+        }
+    }
+
+    @Test
+    void closingTheSchedulerReleasesOpenStreams() throws Exception {
+        VorbisDecodeScheduler scheduler = new VorbisDecodeScheduler(1, 50);
+        List<Tracked> encoded = new ArrayList<>();
+        List<AudioInputStream> pcm = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            encoded.add(new Tracked(Fixtures.encoded("stereo44.ogg")));
+            pcm.add(scheduler.open(encoded.get(i), Fixtures.PCM_44));
+        }
+        pcm.get(0).readNBytes(4096);
+        scheduler.close();
+        assertEquals(0, scheduler.statistics().streams());
+        for (Tracked stream : encoded) {
+            assertTrue(stream.closed);
+        }
+        // what was decoded before can still be read, then the stream fails
+        assertThrows(IOException.class, () -> pcm.get(0).readAllBytes());
+    }
+}
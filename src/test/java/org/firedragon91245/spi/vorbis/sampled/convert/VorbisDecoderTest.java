@@ -0,0 +1,57 @@
+/*
+	vorbisspi-repackaged - a modernized and modularized version of vorbisspi by javazoom
+    Copyright (C) 2024 FireDragon91245
+
+    This library is free software; you can redistribute it and/or
+    modify it under the terms of the GNU Lesser General Public
+    License as published by the Free Software Foundation; either
+    version 2.1 of the License, or (at your option) any later version.
+
+    This library is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+    Lesser General Public License for more details.
+
+    You should have received a copy of the GNU Lesser General Public
+    License along with this library; if not, write to the Free Software
+    Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301
+    USA
+ */
+
+
+package org.firedragon91245.spi.vorbis.sampled.convert;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.InputStream;
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class VorbisDecoderTest {
+    private static final int READ_SIZE = 4096;
+
+    @Test
+    void chainedStreamDecodesBothLinks() throws Exception {
+        byte[] first = Fixtures.decode("stereo44.ogg", Fixtures.PCM_44);
+        byte[] chained = Fixtures.decode("chained.ogg", Fixtures.PCM_44);
+        // the second link ends at granule position 44160
+        assertEquals(first.length + 44160 * 4, chained.length);
+        assertArrayEquals(first, Arrays.copyOf(chained, first.length));
+    }
+
+    @Test
+    void readAfterTheEndReturnsEndOfStream() throws Exception {
+        VorbisDecoder decoder = new VorbisDecoder(Fixtures.PCM_44);
+        try (InputStream in = Fixtures.encoded("chained.ogg")) {
+            byte[] pcm = new byte[READ_SIZE];
+            while (decoder.read(in, READ_SIZE, pcm, 0, pcm.length) >= 0) {
+            }
+            assertEquals(1, decoder.link());
+            assertEquals(-1, decoder.read(in, READ_SIZE, pcm, 0, pcm.length));
+        } finally {
+            decoder.clear();
+        }
+    }
+}
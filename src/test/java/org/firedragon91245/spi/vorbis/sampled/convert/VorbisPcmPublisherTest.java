@@ -0,0 +1,112 @@
+/*
+	vorbisspi-repackaged - a modernized and modularized version of vorbisspi by javazoom
+    Copyright (C) 2024 FireDragon91245
+
+    This library is free software; you can redistribute it and/or
+    modify it under the terms of the GNU Lesser General Public
+    License as published by the Free Software Foundation; either
+    version 2.1 of the License, or (at your option) any later version.
+
+    This library is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+    Lesser General Public License for more details.
+
+    You should have received a copy of the GNU Lesser General Public
+    License along with this library; if not, write to the Free Software
+    Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301
+    USA
+ */
+
+
+package org.firedragon91245.spi.vorbis.sampled.convert;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Flow;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class VorbisPcmPublisherTest {
+    private static final int CHUNK_SIZE = 4096;
+    // runs the decoding on the calling thread, so every call returns with its chunks delivered
+    private static final Executor SAME_THREAD = Runnable::run;
+
+    private static final class Recorder implements Flow.Subscriber<ByteBuffer> {
+        final ByteArrayOutputStream pcm = new ByteArrayOutputStream();
+        Flow.Subscription subscription;
+        int chunks = 0;
+        int completions = 0;
+        Throwable error = null;
+        int cancelAfter = -1;
+
+        public void onSubscribe(Flow.Subscription subscription) {
+            this.subscription = subscription;
+        }
+
+        public void onNext(ByteBuffer chunk) {
+            byte[] b = new byte[chunk.remaining()];
+            chunk.get(b);
+            pcm.writeBytes(b);
+            if (++chunks == cancelAfter) subscription.cancel();
+        }
+
+        public void onError(Throwable throwable) {
+            error = throwable;
+        }
+
+        public void onComplete() {
+            completions++;
+        }
+    }
+
+    private static VorbisPcmPublisher publisher(AtomicReference<FileChannel> opened) {
+        return new VorbisPcmPublisher(() -> {
+            FileChannel channel = FileChannel.open(Fixtures.file("stereo44.ogg").toPath(), StandardOpenOption.READ);
+            opened.set(channel);
+            return channel;
+        }, Fixtures.PCM_44, SAME_THREAD, CHUNK_SIZE, true);
+    }
+
+    @Test
+    void emitsOnlyWhatIsRequested() throws Exception {
+        byte[] expected = Fixtures.decode("stereo44.ogg", Fixtures.PCM_44);
+        Recorder recorder = new Recorder();
+        publisher(new AtomicReference<>()).subscribe(recorder);
+        assertEquals(0, recorder.chunks);
+        recorder.subscription.request(3);
+        assertEquals(3, recorder.chunks);
+        recorder.subscription.request(2);
+        assertEquals(5, recorder.chunks);
+        assertEquals(0, recorder.completions);
+        recorder.subscription.request(Long.MAX_VALUE);
+        assertEquals(1, recorder.completions);
+        assertNull(recorder.error);
+        assertEquals((expected.length + CHUNK_SIZE - 1) / CHUNK_SIZE, recorder.chunks);
+        assertArrayEquals(expected, recorder.pcm.toByteArray());
+    }
+
+    @Test
+    void cancelStopsEmittingAndClosesTheSource() throws Exception {
+        AtomicReference<FileChannel> opened = new AtomicReference<>();
+        Recorder recorder = new Recorder();
+        recorder.cancelAfter = 4;
+        publisher(opened).subscribe(recorder);
+        recorder.subscription.request(Long.MAX_VALUE);
+        assertEquals(4, recorder.chunks);
+        assertEquals(0, recorder.completions);
+        assertNull(recorder.error);
+        assertFalse(opened.get().isOpen());
+        recorder.subscription.request(10);
+        assertEquals(4, recorder.chunks);
+    }
+}
@@ -0,0 +1,72 @@
+/*
+	vorbisspi-repackaged - a modernized and modularized version of vorbisspi by javazoom
+    Copyright (C) 2024 FireDragon91245
+
+    This library is free software; you can redistribute it and/or
+    modify it under the terms of the GNU Lesser General Public
+    License as published by the Free Software Foundation; either
+    version 2.1 of the License, or (at your option) any later version.
+
+    This library is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+    Lesser General Public License for more details.
+
+    You should have received a copy of the GNU Lesser General Public
+    License along with this library; if not, write to the Free Software
+    Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301
+    USA
+ */
+
+
+package org.firedragon91245.spi.vorbis.sampled.convert;
+
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class VorbisPushDecoderTest {
+    @ParameterizedTest
+    @ValueSource(strings = {"stereo44.ogg", "chained.ogg", "multipage-headers.ogg"})
+    void singleByteFeedsEqualStreamDecode(String name) throws Exception {
+        byte[] expected = Fixtures.decode(name, Fixtures.PCM_44);
+        byte[] encoded = Files.readAllBytes(Fixtures.file(name).toPath());
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        byte[] pcm = new byte[4096];
+        try (VorbisPushDecoder decoder = new VorbisPushDecoder(Fixtures.PCM_44)) {
+            for (int i = 0; i < encoded.length; i++) {
+                decoder.feed(encoded, i, 1);
+                int n;
+                while ((n = decoder.decode(pcm, 0, pcm.length)) > 0) {
+                    out.write(pcm, 0, n);
+                }
+            }
+            decoder.endOfInput();
+            int n;
+            while ((n = decoder.decode(pcm, 0, pcm.length)) >= 0) {
+                out.write(pcm, 0, n);
+            }
+            assertTrue(decoder.isFinished());
+        }
+        assertArrayEquals(expected, out.toByteArray());
+    }
+
+    @ParameterizedTest
+    @ValueSource(ints = {100, 3000})
+    void inputEndingInTheHeadersFails(int length) throws Exception {
+        byte[] encoded = Arrays.copyOf(Files.readAllBytes(Fixtures.file("stereo44.ogg").toPath()), length);
+        try (VorbisPushDecoder decoder = new VorbisPushDecoder(Fixtures.PCM_44)) {
+            decoder.feed(encoded, 0, encoded.length);
+            decoder.endOfInput();
+            assertThrows(IOException.class, () -> decoder.decode(new byte[4096], 0, 4096));
+        }
+    }
+}
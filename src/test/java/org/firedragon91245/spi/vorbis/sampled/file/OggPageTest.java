@@ -0,0 +1,78 @@
+/*
+	vorbisspi-repackaged - a modernized and modularized version of vorbisspi by javazoom
+    Copyright (C) 2024 FireDragon91245
+
+    This library is free software; you can redistribute it and/or
+    modify it under the terms of the GNU Lesser General Public
+    License as published by the Free Software Foundation; either
+    version 2.1 of the License, or (at your option) any later version.
+
+    This library is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+    Lesser General Public License for more details.
+
+    You should have received a copy of the GNU Lesser General Public
+    License along with this library; if not, write to the Free Software
+    Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301
+    USA
+ */
+
+
+package org.firedragon91245.spi.vorbis.sampled.file;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class OggPageTest {
+    static Path fixture(String name) throws Exception {
+        return Path.of(OggPageTest.class.getResource("/org/firedragon91245/spi/vorbis/sampled/" + name).toURI());
+    }
+
+    @Test
+    void dataStartFollowsTheSetupHeader() throws Exception {
+        try (FileChannel channel = FileChannel.open(fixture("stereo44.ogg"), StandardOpenOption.READ)) {
+            OggPage first = OggPage.find(channel, 0, channel.size());
+            assertEquals(3407, OggPage.dataStart(channel, first.serialNumber()));
+        }
+    }
+
+    @Test
+    void dataStartSkipsHeaderPagesWithoutGranulePosition() throws Exception {
+        // the comment and setup headers span four pages, the first two with granule position -1
+        try (FileChannel channel = FileChannel.open(fixture("multipage-headers.ogg"), StandardOpenOption.READ)) {
+            OggPage first = OggPage.find(channel, 0, channel.size());
+            assertEquals(15551, OggPage.dataStart(channel, first.serialNumber()));
+        }
+    }
+
+    @Test
+    void reusedFinderMatchesFreshSearches() throws Exception {
+        try (FileChannel channel = FileChannel.open(fixture("chained.ogg"), StandardOpenOption.READ)) {
+            OggPage.Finder finder = new OggPage.Finder();
+            long length = channel.size();
+            int pages = 0;
+            OggPage page = finder.find(channel, 0, length);
+            int serialNumber = page.serialNumber();
+            for (; page != null; page = finder.find(channel, page.end(), length), pages++) {
+                assertEquals(OggPage.find(channel, page.offset(), length), page);
+                // a search starting inside a page finds the next one
+                OggPage next = finder.find(channel, page.offset() + 1, length);
+                OggPage expected = OggPage.find(channel, page.end(), length);
+                assertEquals(expected, next);
+                assertEquals(OggPage.findLast(channel, 0, page.end(), page.serialNumber()),
+                        finder.findLast(channel, 0, page.end(), page.serialNumber()));
+            }
+            assertNull(page);
+            assertEquals(3407, finder.dataStart(channel, serialNumber));
+            assertTrue(pages > 2);
+        }
+    }
+}
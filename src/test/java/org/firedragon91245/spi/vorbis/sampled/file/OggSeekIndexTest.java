@@ -0,0 +1,153 @@
+/*
+	vorbisspi-repackaged - a modernized and modularized version of vorbisspi by javazoom
+    Copyright (C) 2024 FireDragon91245
+
+    This library is free software; you can redistribute it and/or
+    modify it under the terms of the GNU Lesser General Public
+    License as published by the Free Software Foundation; either
+    version 2.1 of the License, or (at your option) any later version.
+
+    This library is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+    Lesser General Public License for more details.
+
+    You should have received a copy of the GNU Lesser General Public
+    License along with this library; if not, write to the Free Software
+    Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301
+    USA
+ */
+
+
+package org.firedragon91245.spi.vorbis.sampled.file;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class OggSeekIndexTest {
+    private static OggSeekIndex build(String name) throws Exception {
+        try (FileChannel channel = FileChannel.open(OggPageTest.fixture(name), StandardOpenOption.READ)) {
+            return OggSeekIndex.build(channel, 1);
+        }
+    }
+
+    @Test
+    void indexStartsAfterMultiPageHeaders() throws Exception {
+        OggSeekIndex index = build("multipage-headers.ogg");
+        assertEquals(15551, index.dataStart());
+        assertEquals(15551, index.offset(0));
+        assertEquals(44032, index.granulePosition(0));
+    }
+
+    @Test
+    void writeAndReadBack() throws Exception {
+        OggSeekIndex index = build("stereo44.ogg");
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        index.write(out, 12592, 42);
+        OggSeekIndex read = OggSeekIndex.read(new ByteArrayInputStream(out.toByteArray()), 12592, 42);
+        assertEquals(index.serialNumber(), read.serialNumber());
+        assertEquals(index.dataStart(), read.dataStart());
+        assertEquals(index.size(), read.size());
+        for (int i = 0; i < index.size(); i++) {
+            assertEquals(index.granulePosition(i), read.granulePosition(i));
+            assertEquals(index.offset(i), read.offset(i));
+        }
+    }
+
+    @Test
+    void entryCountBeyondTheFileIsCorrupt() throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        build("stereo44.ogg").write(out, 12592, 42);
+        byte[] bytes = out.toByteArray();
+        // magic, version, length, modification time, serial number, data start, then the count
+        ByteBuffer.wrap(bytes).putInt(4 + 1 + 8 + 8 + 4 + 8, Integer.MAX_VALUE);
+        assertThrows(IOException.class, () -> OggSeekIndex.read(new ByteArrayInputStream(bytes), 12592, 42));
+    }
+
+    /**
+     * Index bytes for a file of 12592 bytes with the given granule position and offset deltas.
+     */
+    private static byte[] index(long dataStart, long... deltas) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        DataOutputStream data = new DataOutputStream(out);
+        data.writeInt(0x56534958);
+        data.writeByte(1);
+        data.writeLong(12592);
+        data.writeLong(42);
+        data.writeInt(1);
+        data.writeLong(dataStart);
+        data.writeInt(deltas.length / 2);
+        for (long delta : deltas) {
+            for (; (delta & ~0x7FL) != 0; delta >>>= 7) data.writeByte((int) ((delta & 0x7F) | 0x80));
+            data.writeByte((int) delta);
+        }
+        return out.toByteArray();
+    }
+
+    @Test
+    void invalidEntriesAreCorrupt() throws Exception {
+        assertEquals(2, OggSeekIndex.read(new ByteArrayInputStream(index(3407, 44032, 3407, 45056, 4000)), 12592, 42).size());
+        byte[][] corrupt = {
+                // granule position decreasing
+                index(3407, 44032, 3407, -1, 4000),
+                // offsets not increasing, before the data start, past the end of the file
+                index(3407, 44032, 3407, 45056, 0),
+                index(3407, 44032, 3406),
+                index(3407, 44032, 3407, 45056, 12592 - 3407),
+                // count larger than the entries that follow
+                Arrays.copyOf(index(3407, 44032, 3407, 45056, 4000), 45),
+        };
+        for (byte[] bytes : corrupt) {
+            assertThrows(IOException.class, () -> OggSeekIndex.read(new ByteArrayInputStream(bytes), 12592, 42));
+        }
+    }
+
+    @Test
+    void corruptSidecarIsReplaced(@TempDir Path dir) throws Exception {
+        Path file = dir.resolve("a.ogg");
+        Files.copy(OggPageTest.fixture("stereo44.ogg"), file);
+        Path sidecar = dir.resolve("a.ogg" + OggSeekIndex.SIDECAR_SUFFIX);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        build("stereo44.ogg").write(out, Files.size(file), Files.getLastModifiedTime(file).toMillis());
+        byte[] bytes = out.toByteArray();
+        // the last offset delta points past the end of the file
+        ByteBuffer.wrap(bytes).put(bytes.length - 1, (byte) 0x7F);
+        Files.write(sidecar, bytes);
+        assertNull(OggSeekIndex.lookup(file));
+        assertNotNull(OggSeekIndex.forFile(file));
+        assertNotNull(OggSeekIndex.lookup(file));
+    }
+
+    @Test
+    void sidecarIsWrittenWhole(@TempDir Path dir) throws Exception {
+        Path file = dir.resolve("a.ogg");
+        Files.copy(OggPageTest.fixture("stereo44.ogg"), file);
+        OggSeekIndex index = OggSeekIndex.forFile(file);
+        Path sidecar = dir.resolve("a.ogg" + OggSeekIndex.SIDECAR_SUFFIX);
+        assertTrue(Files.exists(sidecar));
+        try (var files = Files.list(dir)) {
+            assertEquals(2, files.count());
+        }
+        ByteArrayOutputStream expected = new ByteArrayOutputStream();
+        index.write(expected, Files.size(file), Files.getLastModifiedTime(file).toMillis());
+        assertArrayEquals(expected.toByteArray(), Files.readAllBytes(sidecar));
+    }
+}
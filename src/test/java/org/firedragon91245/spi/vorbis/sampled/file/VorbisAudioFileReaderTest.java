@@ -0,0 +1,92 @@
+/*
+	vorbisspi-repackaged - a modernized and modularized version of vorbisspi by javazoom
+    Copyright (C) 2024 FireDragon91245
+
+    This library is free software; you can redistribute it and/or
+    modify it under the terms of the GNU Lesser General Public
+    License as published by the Free Software Foundation; either
+    version 2.1 of the License, or (at your option) any later version.
+
+    This library is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+    Lesser General Public License for more details.
+
+    You should have received a copy of the GNU Lesser General Public
+    License along with this library; if not, write to the Free Software
+    Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301
+    USA
+ */
+
+
+package org.firedragon91245.spi.vorbis.sampled.file;
+
+import org.junit.jupiter.api.Test;
+
+import javax.sound.sampled.AudioFileFormat;
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class VorbisAudioFileReaderTest {
+    private static final String[] FIXTURES = {"stereo44.ogg", "stereo22.ogg", "chained.ogg", "multipage-headers.ogg"};
+    private static final int THREADS = 8;
+    private static final int ROUNDS = 50;
+
+    @Test
+    void concurrentProbesMatchSingleThreadedProbes() throws Exception {
+        List<File> files = new ArrayList<>();
+        List<byte[]> contents = new ArrayList<>();
+        List<AudioFileFormat> expected = new ArrayList<>();
+        for (String name : FIXTURES) {
+            File file = OggPageTest.fixture(name).toFile();
+            files.add(file);
+            contents.add(Files.readAllBytes(file.toPath()));
+            expected.add(new VorbisAudioFileReader().getAudioFileFormat(file));
+        }
+        // one reader shared by all threads, as AudioSystem does with its providers
+        VorbisAudioFileReader reader = new VorbisAudioFileReader();
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        CountDownLatch start = new CountDownLatch(1);
+        try {
+            List<Future<?>> results = new ArrayList<>();
+            for (int t = 0; t < THREADS; t++) {
+                int offset = t;
+                results.add(executor.submit(() -> {
+                    start.await();
+                    for (int round = 0; round < ROUNDS; round++) {
+                        int i = (offset + round) % files.size();
+                        assertSameFormat(expected.get(i), reader.getAudioFileFormat(files.get(i)), files.get(i));
+                        AudioFileFormat streamed = reader.getAudioFileFormat(new ByteArrayInputStream(contents.get(i)));
+                        // without a seekable source the length is not known
+                        assertTrue(streamed.getFormat().matches(expected.get(i).getFormat()), files.get(i).toString());
+                    }
+                    return null;
+                }));
+            }
+            start.countDown();
+            for (Future<?> result : results) {
+                result.get();
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private static void assertSameFormat(AudioFileFormat expected, AudioFileFormat actual, File file) {
+        assertEquals(expected.getFrameLength(), actual.getFrameLength(), file.toString());
+        assertEquals(expected.getByteLength(), actual.getByteLength(), file.toString());
+        assertTrue(actual.getFormat().matches(expected.getFormat()), file.toString());
+        assertEquals(expected.properties(), actual.properties(), file.toString());
+        assertEquals(expected.getFormat().properties(), actual.getFormat().properties(), file.toString());
+    }
+}
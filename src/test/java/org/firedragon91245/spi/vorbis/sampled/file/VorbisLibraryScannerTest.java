@@ -0,0 +1,66 @@
+/*
+	vorbisspi-repackaged - a modernized and modularized version of vorbisspi by javazoom
+    Copyright (C) 2024 FireDragon91245
+
+    This library is free software; you can redistribute it and/or
+    modify it under the terms of the GNU Lesser General Public
+    License as published by the Free Software Foundation; either
+    version 2.1 of the License, or (at your option) any later version.
+
+    This library is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+    Lesser General Public License for more details.
+
+    You should have received a copy of the GNU Lesser General Public
+    License along with this library; if not, write to the Free Software
+    Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301
+    USA
+ */
+
+package org.firedragon91245.spi.vorbis.sampled.file;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+
+class VorbisLibraryScannerTest {
+    @TempDir
+    Path directory;
+
+    @Test
+    void brokenFilesFailOnlyThemselves() throws Exception {
+        for (String name : new String[]{"stereo44.ogg", "stereo22.ogg", "chained.ogg", "multipage-headers.ogg"}) {
+            Files.copy(OggPageTest.fixture(name), directory.resolve(name));
+        }
+        byte[] stereo = Files.readAllBytes(OggPageTest.fixture("stereo44.ogg"));
+        Files.write(directory.resolve("truncated.ogg"), Arrays.copyOf(stereo, 100));
+        Files.write(directory.resolve("garbage.ogg"), new byte[5000]);
+
+        try (VorbisLibraryScanner scanner = new VorbisLibraryScanner(3);
+             VorbisLibraryScanner.Scan scan = scanner.scan(directory)) {
+            List<VorbisLibraryScanner.Result> results = scan.stream().toList();
+            assertEquals(6, results.size());
+            for (VorbisLibraryScanner.Result result : results) {
+                boolean broken = result.path().getFileName().toString().matches("truncated.ogg|garbage.ogg");
+                assertEquals(!broken, result.isSuccess(), result.path().toString());
+                if (broken) assertNotNull(result.error());
+            }
+            VorbisLibraryScanner.Statistics statistics = scan.statistics();
+            assertEquals(6, statistics.files());
+            assertEquals(6, statistics.completed());
+            assertEquals(2, statistics.failed());
+            assertFalse(scan.hasNext());
+            // the clock stopped when the last file completed
+            assertEquals(statistics.elapsedNanos(), scan.statistics().elapsedNanos());
+        }
+    }
+}
@@ -0,0 +1,292 @@
+/*
+	vorbisspi-repackaged - a modernized and modularized version of vorbisspi by javazoom
+    Copyright (C) 2024 FireDragon91245
+
+    This library is free software; you can redistribute it and/or
+    modify it under the terms of the GNU Lesser General Public
+    License as published by the Free Software Foundation; either
+    version 2.1 of the License, or (at your option) any later version.
+
+    This library is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+    Lesser General Public License for more details.
+
+    You should have received a copy of the GNU Lesser General Public
+    License along with this library; if not, write to the Free Software
+    Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301
+    USA
+ */
+
+package org.firedragon91245.spi.vorbis.tools;
+
+import org.firedragon91245.spi.vorbis.sampled.convert.VorbisFormatConversionProvider;
+import org.firedragon91245.spi.vorbis.sampled.file.VorbisAudioFileReader;
+
+import javax.sound.sampled.AudioFormat;
+import javax.sound.sampled.AudioInputStream;
+import javax.sound.sampled.UnsupportedAudioFileException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.Stream;
+
+/**
+ * Command line tool converting Ogg Vorbis files and directory trees to WAV or raw PCM.
+ * <pre>
+ * VorbisTranscoder [-f wav|raw] [-s 16|24|float] [-t threads] [-o outdir] input...
+ * </pre>
+ * Files are converted in parallel, each decoded with the direct decoder of
+ * {@link VorbisFormatConversionProvider} and written with large sequential writes. Per-file and total
+ * throughput are printed to standard output.
+ * <p>
+ * 16 bit WAV files have the canonical 44 byte header. 24 bit and float files use WAVE_FORMAT_EXTENSIBLE,
+ * float ones with a <code>fact</code> chunk, as strict readers require. Channels are in Vorbis order.
+ */
+public final class VorbisTranscoder {
+    private static final int WRITE_SIZE = 1 << 20;
+    private static final int RIFF_HEADER_SIZE = 12;
+    private static final int CHUNK_HEADER_SIZE = 8;
+    private static final int FMT_SIZE = 16;
+    private static final int FMT_EXTENSIBLE_SIZE = 40;
+    private static final int FACT_SIZE = 4;
+    private static final short WAVE_FORMAT_PCM = 1;
+    private static final short WAVE_FORMAT_IEEE_FLOAT = 3;
+    private static final short WAVE_FORMAT_EXTENSIBLE = (short) 0xfffe;
+    // KSDATAFORMAT_SUBTYPE_PCM and _IEEE_FLOAT after their first two bytes, the format code
+    private static final byte[] SUBFORMAT_GUID_TAIL = {0, 0, 0, 0, 0x10, 0, (byte) 0x80, 0, 0, (byte) 0xaa, 0, 0x38, (byte) 0x9b, 0x71};
+
+    private final VorbisAudioFileReader reader = new VorbisAudioFileReader();
+    private final VorbisFormatConversionProvider converter = new VorbisFormatConversionProvider();
+    private final boolean wav;
+    private final String sampleFormat;
+    private final Path outputDirectory;
+
+    private VorbisTranscoder(boolean wav, String sampleFormat, Path outputDirectory) {
+        this.wav = wav;
+        this.sampleFormat = sampleFormat;
+        this.outputDirectory = outputDirectory;
+    }
+
+    public static void main(String[] args) throws Exception {
+        String format = "wav";
+        String sampleFormat = "16";
+        int threads = Runtime.getRuntime().availableProcessors();
+        Path outputDirectory = null;
+        List<Path> inputs = new ArrayList<>();
+        try {
+            for (int i = 0; i < args.length; i++) {
+                String arg = args[i];
+                if (arg.startsWith("-") && arg.length() > 1) {
+                    if (i + 1 == args.length) usage();
+                    String value = args[++i];
+                    switch (arg) {
+                        case "-f" -> format = value;
+                        case "-s" -> sampleFormat = value;
+                        case "-t" -> threads = Integer.parseInt(value);
+                        case "-o" -> outputDirectory = Path.of(value);
+                        default -> usage();
+                    }
+                } else {
+                    inputs.add(Path.of(arg));
+                }
+            }
+        } catch (IllegalArgumentException e) {
+            // bad thread count or path
+            System.err.println(e.getMessage());
+            usage();
+        }
+        if (inputs.isEmpty() || threads < 1 || !(format.equals("wav") || format.equals("raw"))
+                || !(sampleFormat.equals("16") || sampleFormat.equals("24") || sampleFormat.equals("float"))) {
+            usage();
+        }
+        VorbisTranscoder transcoder = new VorbisTranscoder(format.equals("wav"), sampleFormat, outputDirectory);
+        System.exit(transcoder.run(inputs, threads) ? 0 : 1);
+    }
+
+    private static void usage() {
+        System.err.println("usage: VorbisTranscoder [-f wav|raw] [-s 16|24|float] [-t threads] [-o outdir] input...");
+        System.exit(2);
+    }
+
+    /**
+     * Converts all Ogg files found in the inputs.
+     *
+     * @return true if every file was converted
+     */
+    private boolean run(List<Path> inputs, int threads) throws IOException, InterruptedException {
+        List<Path[]> jobs = new ArrayList<>();
+        for (Path input : inputs) {
+            if (Files.isDirectory(input)) {
+                try (Stream<Path> walk = Files.walk(input)) {
+                    for (Path file : walk.filter(VorbisTranscoder::isOgg).toList()) {
+                        jobs.add(new Path[]{file, output(file, input.relativize(file))});
+                    }
+                }
+            } else {
+                jobs.add(new Path[]{input, output(input, input.getFileName())});
+            }
+        }
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        long start = System.nanoTime();
+        List<Future<long[]>> results = new ArrayList<>();
+        for (Path[] job : jobs) {
+            results.add(executor.submit(() -> convert(job[0], job[1])));
+        }
+        executor.shutdown();
+        long bytes = 0;
+        long millis = 0;
+        int failed = 0;
+        for (int i = 0; i < results.size(); i++) {
+            try {
+                long[] result = results.get(i).get();
+                bytes += result[0];
+                millis += result[1];
+            } catch (ExecutionException e) {
+                failed++;
+                System.err.println(jobs.get(i)[0] + ": " + e.getCause());
+            }
+        }
+        double elapsed = (System.nanoTime() - start) / 1e9;
+        System.out.printf(Locale.ROOT, "%d files (%d failed), %.1f s of audio in %.2f s: %.1fx realtime, %.1f MB/s written%n",
+                jobs.size(), failed, millis / 1e3, elapsed, millis / 1e3 / elapsed, bytes / elapsed / 1e6);
+        return failed == 0;
+    }
+
+    private Path output(Path file, Path relative) {
+        String name = relative.toString();
+        int dot = name.lastIndexOf('.');
+        name = (dot > 0 ? name.substring(0, dot) : name) + (wav ? ".wav" : ".raw");
+        return outputDirectory != null ? outputDirectory.resolve(name) : file.resolveSibling(Path.of(name).getFileName());
+    }
+
+    private static boolean isOgg(Path path) {
+        String name = path.getFileName().toString().toLowerCase(Locale.ROOT);
+        return (name.endsWith(".ogg") || name.endsWith(".oga")) && Files.isRegularFile(path);
+    }
+
+    /**
+     * @return bytes written and milliseconds of audio
+     */
+    private long[] convert(Path input, Path output) throws IOException, UnsupportedAudioFileException {
+        long start = System.nanoTime();
+        long bytes = 0;
+        long frames;
+        AudioFormat format;
+        try (AudioInputStream encoded = reader.getAudioInputStream(input.toFile())) {
+            format = targetFormat(encoded.getFormat());
+            if (output.getParent() != null) Files.createDirectories(output.getParent());
+            try (AudioInputStream decoded = converter.getAudioInputStream(format, encoded);
+                 FileChannel out = FileChannel.open(output, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                         StandardOpenOption.TRUNCATE_EXISTING)) {
+                // the header is written once the data length is known
+                int headerSize = wav ? wavHeaderSize(format) : 0;
+                out.position(headerSize);
+                ByteBuffer buffer = ByteBuffer.allocate(WRITE_SIZE - WRITE_SIZE % format.getFrameSize());
+                byte[] array = buffer.array();
+                int n;
+                int filled = 0;
+                while ((n = decoded.read(array, filled, array.length - filled)) >= 0) {
+                    filled += n;
+                    if (filled == array.length) {
+                        bytes += write(out, buffer, filled);
+                        filled = 0;
+                    }
+                }
+                bytes += write(out, buffer, filled);
+                frames = bytes / format.getFrameSize();
+                if (wav) {
+                    out.write(wavHeader(format, bytes), 0);
+                    bytes += headerSize;
+                }
+            }
+        }
+        double elapsed = (System.nanoTime() - start) / 1e9;
+        double seconds = frames / format.getSampleRate();
+        System.out.printf(Locale.ROOT, "%s: %.1f s in %.2f s, %.1fx realtime, %.1f MB/s%n",
+                input, seconds, elapsed, seconds / elapsed, bytes / elapsed / 1e6);
+        return new long[]{bytes, Math.round(seconds * 1000)};
+    }
+
+    private static int write(FileChannel out, ByteBuffer buffer, int length) throws IOException {
+        buffer.clear().limit(length);
+        while (buffer.hasRemaining()) {
+            out.write(buffer);
+        }
+        return length;
+    }
+
+    private AudioFormat targetFormat(AudioFormat source) {
+        Map<String, Object> direct = Map.of(VorbisFormatConversionProvider.DIRECT_PROPERTY, Boolean.TRUE);
+        float rate = source.getSampleRate();
+        int channels = source.getChannels();
+        return switch (sampleFormat) {
+            case "24" -> new AudioFormat(AudioFormat.Encoding.PCM_SIGNED, rate, 24, channels, 3 * channels, rate, false, direct);
+            case "float" -> new AudioFormat(AudioFormat.Encoding.PCM_FLOAT, rate, 32, channels, 4 * channels, rate, false, direct);
+            default -> new AudioFormat(AudioFormat.Encoding.PCM_SIGNED, rate, 16, channels, 2 * channels, rate, false, direct);
+        };
+    }
+
+    /**
+     * 16 bit PCM gets the plain format chunk, every other format WAVE_FORMAT_EXTENSIBLE.
+     */
+    private static boolean isExtensible(AudioFormat format) {
+        return format.getSampleSizeInBits() != 16 || !AudioFormat.Encoding.PCM_SIGNED.equals(format.getEncoding());
+    }
+
+    private static boolean isFloat(AudioFormat format) {
+        return AudioFormat.Encoding.PCM_FLOAT.equals(format.getEncoding());
+    }
+
+    private static int wavHeaderSize(AudioFormat format) {
+        int size = RIFF_HEADER_SIZE + CHUNK_HEADER_SIZE + (isExtensible(format) ? FMT_EXTENSIBLE_SIZE : FMT_SIZE);
+        if (isFloat(format)) size += CHUNK_HEADER_SIZE + FACT_SIZE;
+        return size + CHUNK_HEADER_SIZE;
+    }
+
+    /**
+     * WAV header: RIFF, format, for float a fact chunk, and the data chunk header.
+     *
+     * @param dataLength length of the PCM data in bytes
+     */
+    private static ByteBuffer wavHeader(AudioFormat format, long dataLength) {
+        int headerSize = wavHeaderSize(format);
+        int data = (int) Math.min(dataLength, 0xffffffffL - headerSize);
+        boolean extensible = isExtensible(format);
+        short code = isFloat(format) ? WAVE_FORMAT_IEEE_FLOAT : WAVE_FORMAT_PCM;
+        int channels = format.getChannels();
+        ByteBuffer header = ByteBuffer.allocate(headerSize).order(ByteOrder.LITTLE_ENDIAN);
+        header.put(new byte[]{'R', 'I', 'F', 'F'}).putInt(headerSize - 8 + data).put(new byte[]{'W', 'A', 'V', 'E'});
+        header.put(new byte[]{'f', 'm', 't', ' '}).putInt(extensible ? FMT_EXTENSIBLE_SIZE : FMT_SIZE)
+                .putShort(extensible ? WAVE_FORMAT_EXTENSIBLE : code)
+                .putShort((short) channels)
+                .putInt((int) format.getSampleRate())
+                .putInt((int) format.getSampleRate() * format.getFrameSize())
+                .putShort((short) format.getFrameSize())
+                .putShort((short) format.getSampleSizeInBits());
+        if (extensible) {
+            // extension size, valid bits, speaker positions: only mono and stereo map onto WAV positions
+            header.putShort((short) 22)
+                    .putShort((short) format.getSampleSizeInBits())
+                    .putInt(channels == 1 ? 0x4 : channels == 2 ? 0x3 : 0)
+                    .putShort(code).put(SUBFORMAT_GUID_TAIL);
+        }
+        if (isFloat(format)) {
+            header.put(new byte[]{'f', 'a', 'c', 't'}).putInt(FACT_SIZE).putInt((int) Math.min(data / format.getFrameSize(), 0xffffffffL));
+        }
+        header.put(new byte[]{'d', 'a', 't', 'a'}).putInt(data);
+        return header.flip();
+    }
+}